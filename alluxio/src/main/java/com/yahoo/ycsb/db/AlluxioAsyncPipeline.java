@@ -0,0 +1,98 @@
+package com.yahoo.ycsb.db;
+
+import com.yahoo.ycsb.Status;
+import com.yahoo.ycsb.StatusCallback;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs the master RPCs of the asynchronous DB operations on a shared executor,
+ * so that a YCSB thread can keep several of them in flight instead of waiting
+ * for each RPC in turn.
+ *
+ * How many operations each thread keeps in flight is bounded by the core
+ * async.depth setting, whose pipeline starts them through the binding's
+ * asynchronous methods. Each operation completes its callback on an executor
+ * thread, which is where DBWrapper measures it and the workload learns its
+ * result.
+ */
+final class AlluxioAsyncPipeline {
+  /**
+   * Whether asynchronous operations run on the shared executor.
+   */
+  public static final String ASYNC_PROPERTY = "alluxio.async";
+  public static final String ASYNC_PROPERTY_DEFAULT = "false";
+
+  /**
+   * The number of executor threads issuing RPCs for all YCSB threads.
+   */
+  public static final String THREADS_PROPERTY = "alluxio.async.threads";
+  public static final String THREADS_PROPERTY_DEFAULT = "64";
+
+  private static ExecutorService sExecutor = null;
+  private static int sUsers = 0;
+
+  AlluxioAsyncPipeline(int executorThreads) {
+    synchronized (AlluxioAsyncPipeline.class) {
+      if (sExecutor == null) {
+        sExecutor = newExecutor(executorThreads);
+      }
+      sUsers++;
+    }
+  }
+
+  private static ExecutorService newExecutor(int threads) {
+    final AtomicInteger count = new AtomicInteger(0);
+    // The queue never holds more than threadcount * async.depth operations,
+    // as the core pipeline bounds every YCSB thread.
+    return new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+        new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+          @Override
+          public Thread newThread(Runnable r) {
+            Thread t = new Thread(r, "alluxio-async-" + count.getAndIncrement());
+            t.setDaemon(true);
+            return t;
+          }
+        });
+  }
+
+  /**
+   * Run op on the executor and complete callback with its result.
+   *
+   * @param op the operation; an exception counts as ERROR.
+   */
+  void execute(final Callable<Status> op, final StatusCallback callback) {
+    sExecutor.execute(new Runnable() {
+      @Override
+      public void run() {
+        Status result;
+        try {
+          result = op.call();
+        } catch (Exception e) {
+          e.printStackTrace();
+          result = Status.ERROR;
+        }
+        callback.completed(result);
+      }
+    });
+  }
+
+  /**
+   * Shut the executor down once every thread has closed its pipeline. The
+   * core pipeline has waited for this thread's operations already.
+   */
+  void close() {
+    synchronized (AlluxioAsyncPipeline.class) {
+      if (--sUsers == 0) {
+        sExecutor.shutdown();
+        sExecutor = null;
+      }
+    }
+  }
+}
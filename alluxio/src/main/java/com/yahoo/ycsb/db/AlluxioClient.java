@@ -5,8 +5,13 @@ import alluxio.Configuration;
 import alluxio.Constants;
 import alluxio.PropertyKey;
 import alluxio.client.ClientContext;
+import alluxio.client.ReadType;
+import alluxio.client.WriteType;
 import alluxio.client.block.BlockMasterClient;
 import alluxio.client.block.RetryHandlingBlockMasterClient;
+import alluxio.client.file.FileInStream;
+import alluxio.client.file.FileOutStream;
+import alluxio.client.file.FileSystem;
 import alluxio.client.file.FileSystemContext;
 import alluxio.client.file.FileSystemMasterClient;
 import alluxio.client.file.URIStatus;
@@ -14,33 +19,165 @@ import alluxio.client.file.options.*;
 import alluxio.exception.AlluxioException;
 import alluxio.exception.FileAlreadyExistsException;
 import alluxio.security.authentication.AuthType;
+import alluxio.wire.LoadMetadataType;
 import com.yahoo.ycsb.*;
+import com.yahoo.ycsb.measurements.Measurements;
+import com.yahoo.ycsb.workloads.CoreWorkload;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.FileInputStream;
+import java.io.IOException;
 import java.io.InputStream;
 import java.net.InetSocketAddress;
 import java.util.*;
+import java.util.concurrent.Callable;
 import java.util.concurrent.atomic.AtomicInteger;
 
-public class AlluxioClient extends DB {
+public class AlluxioClient extends DB implements NamespaceDB {
   private static final Logger LOG = LoggerFactory.getLogger(Constants.LOGGER_TYPE);
 
+  /**
+   * How master clients are handed out to YCSB threads. "perthread" pins one
+   * master client (and so one Thrift connection) to each thread for the whole
+   * run; "shared" acquires a client from a pool of {@link #POOL_SIZE_PROPERTY}
+   * clients around every operation and releases it afterwards.
+   */
+  public static final String POOL_MODE_PROPERTY = "alluxio.client.pool.mode";
+  public static final String POOL_MODE_PROPERTY_DEFAULT = "perthread";
+
+  /**
+   * The number of master clients shared by all threads in "shared" mode. The
+   * pool serves the YCSB threads, the async executor threads and the
+   * data-path file streams; each of them holds at most one client at a time,
+   * so a smaller pool makes them queue (see {@link #POOL_WAIT_MEASUREMENT})
+   * but cannot deadlock.
+   */
+  public static final String POOL_SIZE_PROPERTY = "alluxio.client.pool.size";
+  public static final String POOL_SIZE_PROPERTY_DEFAULT = "64";
+
+  /**
+   * Time spent waiting for a pooled master client, reported separately so
+   * that client-side queueing does not get mixed into the RPC latencies.
+   */
+  public static final String POOL_WAIT_MEASUREMENT = "ALLUXIO_POOL_WAIT";
+
+  /**
+   * When true, insert/update write the record's field bytes into the file
+   * through a {@link FileOutStream} and read pulls the file back through a
+   * {@link FileInStream}, so block data moves through the workers. When false
+   * only master metadata RPCs are issued.
+   */
+  public static final String DATA_PATH_PROPERTY = "alluxio.datapath";
+  public static final String DATA_PATH_PROPERTY_DEFAULT = "false";
+
+  /**
+   * The {@link WriteType} used for files written in data-path mode, e.g.
+   * MUST_CACHE, CACHE_THROUGH or THROUGH.
+   */
+  public static final String WRITE_TYPE_PROPERTY = "alluxio.writetype";
+  public static final String WRITE_TYPE_PROPERTY_DEFAULT = "MUST_CACHE";
+
+  /**
+   * The {@link ReadType} used for files read in data-path mode, e.g.
+   * NO_CACHE, CACHE or CACHE_PROMOTE.
+   */
+  public static final String READ_TYPE_PROPERTY = "alluxio.readtype";
+  public static final String READ_TYPE_PROPERTY_DEFAULT = "CACHE";
+
+  /**
+   * Size in bytes of the per-thread buffer that data-path reads and writes
+   * are copied through.
+   */
+  public static final String IO_BUFFER_SIZE_PROPERTY = "alluxio.iobuffersize";
+  public static final String IO_BUFFER_SIZE_PROPERTY_DEFAULT = "65536";
+
+  /**
+   * How insert deals with files that may already exist. "create" issues a
+   * single create RPC and only deletes first when this run has already
+   * created the key; "overwrite" additionally deletes and re-creates files
+   * left over from earlier runs; "deletefirst" always deletes before
+   * creating, as earlier versions of this binding did.
+   */
+  public static final String INSERT_MODE_PROPERTY = "alluxio.insert.mode";
+  public static final String INSERT_MODE_PROPERTY_DEFAULT = "create";
+
+  /**
+   * How long, in milliseconds, a thread reuses its sorted listing of the table
+   * for scans before listing it again. 0 lists on every scan.
+   */
+  public static final String SCAN_LISTING_TTL_PROPERTY = "alluxio.scan.listing.ttl";
+  public static final String SCAN_LISTING_TTL_PROPERTY_DEFAULT = "1000";
+
+  /**
+   * Time spent in listStatus RPCs when a scan refreshes its listing.
+   */
+  public static final String LIST_MEASUREMENT = "ALLUXIO_LIST";
+
+  /** Options are never modified after creation, so one instance serves every call. */
+  private static final DeleteOptions DELETE_OPTIONS = DeleteOptions.defaults();
+
+  private static final Comparator<URIStatus> NAME_ORDER = new Comparator<URIStatus>() {
+    @Override
+    public int compare(URIStatus s1, URIStatus s2) {
+      return s1.getName().compareTo(s2.getName());
+    }
+  };
+
   //private BlockMasterClient mBlockMasterClient = null;
   private FileSystemContext mFileSystemContext = null;
   private FileSystemMasterClient mFileSystemMasterClient = null;
 
   private AlluxioURI mMasterLocation = null;
   private String mDefaultDir = null;
+  private AlluxioNamespace mNamespace = null;
+  private AlluxioUriCache mUriCache = null;
+
+  private boolean mDeleteFirst = false;
+  private boolean mOverwrite = false;
+
+  private long mListingTtlMs = 0;
+  private ListStatusOptions mListStatusOptions = null;
+  private String mListingTable = null;
+  private long mListingTimeMs = 0;
+  private String[] mListingNames = null;
+  private URIStatus[] mListingStatuses = null;
+
+  private boolean mSharedPool = false;
+  private AlluxioAsyncPipeline mAsyncPipeline = null;
+  private Measurements mMeasurements = null;
+
+  private boolean mDataPath = false;
+  private FileSystem mFileSystem = null;
+  private CreateFileOptions mCreateFileOptions = null;
+  private OpenFileOptions mOpenFileOptions = null;
+  private SetAttributeOptions mSetAttributeOptions = null;
+  private byte[] mIoBuffer = null;
 
   private static final AtomicInteger INIT_COUNT = new AtomicInteger(0);
 
+  /** Keys created by any thread of this client during the run. */
+  private static AlluxioCreatedKeys sCreatedKeys = null;
+
+  /** Whether the table directory tree has been created by one of the threads. */
+  private static boolean sNamespaceCreated = false;
+
+  /** File statuses cached for read(), or null if the cache is disabled. */
+  private static AlluxioMetadataCache sMetadataCache = null;
+  private static boolean sMetadataCacheInitialized = false;
+
   /**
    * Cleanup client resources.
    */
   @Override
   public void cleanup() throws DBException {
+    if (mAsyncPipeline != null) {
+      mAsyncPipeline.close();
+    }
+    if (mSharedPool) {
+      // Pooled clients belong to the FileSystemContext, nothing to close here.
+      return;
+    }
     try {
       mFileSystemMasterClient.close();
     } catch (Exception e) {
@@ -86,60 +223,312 @@ public class AlluxioClient extends DB {
     Configuration.set(PropertyKey.MASTER_RPC_PORT, Integer.toString(mMasterLocation.getPort()));
     Configuration.set(PropertyKey.SECURITY_AUTHENTICATION_TYPE, AuthType.NOSASL);
     Configuration.set(PropertyKey.SECURITY_AUTHORIZATION_PERMISSION_ENABLED, false);
-    Configuration.set(PropertyKey.USER_FILE_MASTER_CLIENT_THREADS, 4000);     // Max number of threads.
 
+    Properties ycsbProps = getProperties();
+    mDataPath = Boolean.parseBoolean(ycsbProps.getProperty(DATA_PATH_PROPERTY, DATA_PATH_PROPERTY_DEFAULT));
+
+    // The context's master client pool must be able to hand one client to every
+    // thread in "perthread" mode, and is the shared pool itself in "shared" mode.
+    boolean async = Boolean.parseBoolean(ycsbProps.getProperty(
+        AlluxioAsyncPipeline.ASYNC_PROPERTY, AlluxioAsyncPipeline.ASYNC_PROPERTY_DEFAULT));
+    if (async && mDataPath) {
+      throw new DBException(AlluxioAsyncPipeline.ASYNC_PROPERTY + " is not supported with " + DATA_PATH_PROPERTY);
+    }
+    if (async && PipelinedDB.getDepth(ycsbProps) <= 1) {
+      throw new DBException(AlluxioAsyncPipeline.ASYNC_PROPERTY + " needs " + PipelinedDB.ASYNC_DEPTH_PROPERTY
+          + " > 1 to keep operations in flight");
+    }
+    String poolMode = ycsbProps.getProperty(POOL_MODE_PROPERTY, POOL_MODE_PROPERTY_DEFAULT);
+    int poolSize;
+    if (poolMode.equals("shared") || async) {
+      // Executor threads issue the RPCs in async mode, so they share the pool.
+      mSharedPool = true;
+      poolSize = Integer.parseInt(ycsbProps.getProperty(POOL_SIZE_PROPERTY, POOL_SIZE_PROPERTY_DEFAULT));
+      if (poolSize < 1) {
+        throw new DBException(POOL_SIZE_PROPERTY + " must be at least 1, was " + poolSize);
+      }
+    } else if (poolMode.equals("perthread")) {
+      mSharedPool = false;
+      poolSize = Integer.parseInt(ycsbProps.getProperty(Client.THREAD_COUNT_PROPERTY, "1"));
+      if (mDataPath) {
+        // The FileSystem streams take their own master clients from the same pool.
+        poolSize *= 2;
+      }
+    } else {
+      throw new DBException("Unknown " + POOL_MODE_PROPERTY + "=" + poolMode);
+    }
+    Configuration.set(PropertyKey.USER_FILE_MASTER_CLIENT_THREADS, poolSize);
+
+    mMeasurements = Measurements.getMeasurements();
+    if (async) {
+      mAsyncPipeline = new AlluxioAsyncPipeline(Integer.parseInt(ycsbProps.getProperty(
+          AlluxioAsyncPipeline.THREADS_PROPERTY, AlluxioAsyncPipeline.THREADS_PROPERTY_DEFAULT)));
+    }
     mFileSystemContext = FileSystemContext.INSTANCE;
-    mFileSystemMasterClient = mFileSystemContext.acquireMasterClient();
+    if (!mSharedPool) {
+      mFileSystemMasterClient = mFileSystemContext.acquireMasterClient();
+    }
+
+    if (mDataPath) {
+      try {
+        mCreateFileOptions = CreateFileOptions.defaults().setWriteType(WriteType.valueOf(
+            ycsbProps.getProperty(WRITE_TYPE_PROPERTY, WRITE_TYPE_PROPERTY_DEFAULT)));
+        mOpenFileOptions = OpenFileOptions.defaults().setReadType(ReadType.valueOf(
+            ycsbProps.getProperty(READ_TYPE_PROPERTY, READ_TYPE_PROPERTY_DEFAULT)));
+      } catch (IllegalArgumentException e) {
+        throw new DBException("Invalid " + WRITE_TYPE_PROPERTY + " or " + READ_TYPE_PROPERTY, e);
+      }
+      mIoBuffer = new byte[Integer.parseInt(
+          ycsbProps.getProperty(IO_BUFFER_SIZE_PROPERTY, IO_BUFFER_SIZE_PROPERTY_DEFAULT))];
+      mFileSystem = FileSystem.Factory.get();
+    }
+
+    // Create the table directory, and the hashed directory tree below it, once
+    // for all threads before any of them starts inserting.
+    mDefaultDir = ycsbProps.getProperty(CoreWorkload.TABLENAME_PROPERTY, CoreWorkload.TABLENAME_PROPERTY_DEFAULT);
+    mNamespace = new AlluxioNamespace(ycsbProps);
+    mUriCache = new AlluxioUriCache(mNamespace, mDefaultDir, AlluxioUriCache.capacity(ycsbProps));
+    if (!mDataPath) {
+      mCreateFileOptions = CreateFileOptions.defaults();
+    }
+    mSetAttributeOptions = SetAttributeOptions.defaults();
+
+    String insertMode = ycsbProps.getProperty(INSERT_MODE_PROPERTY, INSERT_MODE_PROPERTY_DEFAULT);
+    if (insertMode.equals("deletefirst")) {
+      mDeleteFirst = true;
+    } else if (insertMode.equals("overwrite")) {
+      mOverwrite = true;
+    } else if (!insertMode.equals("create")) {
+      throw new DBException("Unknown " + INSERT_MODE_PROPERTY + "=" + insertMode);
+    }
+
+    mListingTtlMs = Long.parseLong(
+        ycsbProps.getProperty(SCAN_LISTING_TTL_PROPERTY, SCAN_LISTING_TTL_PROPERTY_DEFAULT));
+    mListStatusOptions = ListStatusOptions.defaults().setLoadMetadataType(LoadMetadataType.Never);
+
+    synchronized (AlluxioClient.class) {
+      if (sCreatedKeys == null) {
+        sCreatedKeys = new AlluxioCreatedKeys();
+      }
+      if (!sNamespaceCreated) {
+        mNamespace.createDirectories(
+            new InetSocketAddress(mMasterLocation.getHost(), mMasterLocation.getPort()), mDefaultDir);
+        sNamespaceCreated = true;
+      }
+      if (!sMetadataCacheInitialized) {
+        if (Boolean.parseBoolean(ycsbProps.getProperty(
+            AlluxioMetadataCache.ENABLED_PROPERTY, AlluxioMetadataCache.ENABLED_PROPERTY_DEFAULT))) {
+          sMetadataCache = new AlluxioMetadataCache(
+              Integer.parseInt(ycsbProps.getProperty(
+                  AlluxioMetadataCache.SIZE_PROPERTY, AlluxioMetadataCache.SIZE_PROPERTY_DEFAULT)),
+              Long.parseLong(ycsbProps.getProperty(
+                  AlluxioMetadataCache.TTL_PROPERTY, AlluxioMetadataCache.TTL_PROPERTY_DEFAULT)),
+              Integer.parseInt(ycsbProps.getProperty(
+                  AlluxioMetadataCache.SEGMENTS_PROPERTY, AlluxioMetadataCache.SEGMENTS_PROPERTY_DEFAULT)),
+              mMeasurements);
+        }
+        sMetadataCacheInitialized = true;
+      }
+    }
+  }
 
-    // Create default directory for insertion.
-    mDefaultDir = "/usertable";
-    AlluxioURI alluxioDefaultDir = new AlluxioURI(mDefaultDir);
+  /**
+   * Get a master client for one operation. In "perthread" mode this is the
+   * client pinned to this thread; in "shared" mode it is taken from the pool
+   * and the time spent waiting is recorded under {@link #POOL_WAIT_MEASUREMENT}.
+   */
+  private FileSystemMasterClient acquireMasterClient() {
+    if (!mSharedPool) {
+      return mFileSystemMasterClient;
+    }
+    long st = System.nanoTime();
+    FileSystemMasterClient client = mFileSystemContext.acquireMasterClient();
+    long en = System.nanoTime();
+    mMeasurements.measureNanos(POOL_WAIT_MEASUREMENT, en - st);
+    return client;
+  }
+
+  /**
+   * Get a master client for a record operation, or null in data-path mode.
+   * The data path goes through {@link #mFileSystem}, whose streams take
+   * master clients from the same pool; holding one here as well would
+   * exhaust a shared pool once every pooled client is held by a thread
+   * waiting for a second one.
+   */
+  private FileSystemMasterClient acquireRecordClient() {
+    return mDataPath ? null : acquireMasterClient();
+  }
 
+  /**
+   * Give back a client obtained from {@link #acquireMasterClient()} or
+   * {@link #acquireRecordClient()}.
+   */
+  private void releaseMasterClient(FileSystemMasterClient client) {
+    if (mSharedPool && client != null) {
+      mFileSystemContext.releaseMasterClient(client);
+    }
+  }
+
+  /**
+   * Write the bytes of every field in values into a new file, streaming them
+   * through {@link #mIoBuffer}. Used in data-path mode only.
+   */
+  private void writeFile(AlluxioURI alluxioFile, HashMap<String, ByteIterator> values)
+      throws IOException, AlluxioException {
+    FileOutStream out = mFileSystem.createFile(alluxioFile, mCreateFileOptions);
     try {
-      mFileSystemMasterClient.createDirectory(alluxioDefaultDir, CreateDirectoryOptions.defaults());
-    } catch (Exception e) {
-      if (!(e instanceof FileAlreadyExistsException)) {
-        e.printStackTrace();
+      for (ByteIterator value : values.values()) {
+        while (value.hasNext()) {
+          int len = value.nextBuf(mIoBuffer, 0);
+          out.write(mIoBuffer, 0, len);
+        }
       }
+    } catch (IOException e) {
+      out.cancel();
+      throw e;
     }
+    out.close();
+  }
 
+  /**
+   * Read a whole file into {@link #mIoBuffer}, overwriting it chunk by chunk.
+   * Used in data-path mode only.
+   *
+   * @return the number of bytes read.
+   */
+  private long readFile(AlluxioURI alluxioFile) throws IOException, AlluxioException {
+    long total = 0;
+    FileInStream in = mFileSystem.openFile(alluxioFile, mOpenFileOptions);
+    try {
+      int len;
+      while ((len = in.read(mIoBuffer, 0, mIoBuffer.length)) != -1) {
+        total += len;
+      }
+    } finally {
+      in.close();
+    }
+    return total;
   }
 
   /**
    * Create files under a certain directory.
    * RPC invoked: {@link alluxio.thrift.FileSystemMasterClientService.Iface}.createFile(path, option)
+   * In data-path mode the file is created through the worker write path instead
+   * and filled with the bytes of every field in values. See
+   * {@link #INSERT_MODE_PROPERTY} for how existing files are handled.
    *
    * @param dir name of the file's parent directory.
    * @param file name of the file.
-   * @param values Ignored.
+   * @param values Written into the file in data-path mode, ignored otherwise.
    * @return OK on success, ERROR otherwise. See the
    *         {@link DB} class's description for a discussion of error codes.
    */
   @Override
   public Status insert(
           String dir, String file, HashMap<String, ByteIterator> values) {
-    String fullPath = "/"+dir+"/"+file;
-    AlluxioURI alluxioFile = new AlluxioURI(fullPath);
+    return doInsert(mUriCache.get(dir, file), file, values);
+  }
 
-    // Before insertion, first try to delete the if-existing file.
-    try {
-      mFileSystemMasterClient.delete(alluxioFile, DeleteOptions.defaults());
-    } catch (Exception e) {
-      //e.printStackTrace();
+  /**
+   * Start an insert on the {@link AlluxioAsyncPipeline} if alluxio.async is
+   * set, and call back once the file is created.
+   */
+  @Override
+  public void insertAsync(String dir, final String file, final HashMap<String, ByteIterator> values,
+                          StatusCallback callback) {
+    if (mAsyncPipeline == null) {
+      super.insertAsync(dir, file, values, callback);
+      return;
     }
+    final AlluxioURI alluxioFile = mUriCache.get(dir, file);
+    mAsyncPipeline.execute(new Callable<Status>() {
+      @Override
+      public Status call() {
+        return doInsert(alluxioFile, file, values);
+      }
+    }, callback);
+  }
+
+  private Status doInsert(AlluxioURI alluxioFile, String file, HashMap<String, ByteIterator> values) {
+    String fullPath = alluxioFile.getPath();
+    FileSystemMasterClient client = acquireRecordClient();
 
     try {
-      // "/foo/bar" = "/" + "foo" + "/" + "bar".
-      mFileSystemMasterClient.createFile(alluxioFile, CreateFileOptions.defaults());
+      if (mDeleteFirst || sCreatedKeys.contains(file)) {
+        // This run may have created the file already, delete it first.
+        deleteQuietly(client, alluxioFile);
+      }
+      try {
+        createFile(client, alluxioFile, values);
+      } catch (FileAlreadyExistsException e) {
+        if (!mOverwrite) {
+          System.err.println("File already exists "+fullPath);
+          return Status.ERROR;
+        }
+        deleteQuietly(client, alluxioFile);
+        createFile(client, alluxioFile, values);
+      }
+      sCreatedKeys.add(file);
     } catch (Exception e) {
-      System.err.println("Could not create the file"+"/"+dir+"/"+file);
-      //if (e instanceof FileAlreadyExistsException) return Status.OK;
+      System.err.println("Could not create the file "+fullPath);
       e.printStackTrace();
       return Status.ERROR;
+    } finally {
+      invalidateStatus(fullPath);
+      releaseMasterClient(client);
     }
     return Status.OK;
   }
 
+  private void createFile(FileSystemMasterClient client, AlluxioURI alluxioFile,
+                          HashMap<String, ByteIterator> values) throws IOException, AlluxioException {
+    if (mDataPath) {
+      writeFile(alluxioFile, values);
+    } else {
+      client.createFile(alluxioFile, mCreateFileOptions);
+    }
+  }
+
+  /**
+   * Drop a file's cached status after this client changed or removed it.
+   */
+  private static void invalidateStatus(String fullPath) {
+    if (sMetadataCache != null) {
+      sMetadataCache.invalidate(fullPath);
+    }
+  }
+
+  /**
+   * Drop the cached statuses of a path and everything below it after this
+   * client renamed or removed it.
+   */
+  private static void invalidateStatusTree(String path) {
+    if (sMetadataCache != null) {
+      sMetadataCache.invalidatePrefix(path);
+    }
+  }
+
+  private void deleteQuietly(FileSystemMasterClient client, AlluxioURI alluxioFile) {
+    try {
+      deleteFile(client, alluxioFile);
+    } catch (Exception e) {
+      // The file did not exist.
+    }
+  }
+
+  /**
+   * Delete a file with client, or through the file system when client is
+   * null in data-path mode.
+   */
+  private void deleteFile(FileSystemMasterClient client, AlluxioURI alluxioFile)
+      throws IOException, AlluxioException {
+    if (client == null) {
+      mFileSystem.delete(alluxioFile, DELETE_OPTIONS);
+    } else {
+      client.delete(alluxioFile, DELETE_OPTIONS);
+    }
+  }
+
   /**
    * Delete a file from Alluxio.
    * RPC invoked: {@link alluxio.thrift.FileSystemMasterClientService.Iface}.remove(path, option)
@@ -151,14 +540,40 @@ public class AlluxioClient extends DB {
    */
   @Override
   public Status delete(String dir, String file) {
+    return doDelete(mUriCache.get(dir, file));
+  }
+
+  /**
+   * Start a delete on the {@link AlluxioAsyncPipeline} if alluxio.async is
+   * set, and call back once the file is deleted.
+   */
+  @Override
+  public void deleteAsync(String dir, String file, StatusCallback callback) {
+    if (mAsyncPipeline == null) {
+      super.deleteAsync(dir, file, callback);
+      return;
+    }
+    final AlluxioURI alluxioFile = mUriCache.get(dir, file);
+    mAsyncPipeline.execute(new Callable<Status>() {
+      @Override
+      public Status call() {
+        return doDelete(alluxioFile);
+      }
+    }, callback);
+  }
+
+  private Status doDelete(AlluxioURI alluxioFile) {
+    String fullPath = alluxioFile.getPath();
+    FileSystemMasterClient client = acquireMasterClient();
     try {
-      // "/foo/bar" = "/foo" + "/" + "bar".
-      AlluxioURI fullpath = new AlluxioURI("/"+dir+"/"+file);
-      mFileSystemMasterClient.delete(fullpath, DeleteOptions.defaults());
+      client.delete(alluxioFile, DELETE_OPTIONS);
     } catch (Exception e) {
-      System.err.println("Could not delete the file "+"/"+dir+"/"+file);
+      System.err.println("Could not delete the file "+fullPath);
       e.printStackTrace();
       return Status.ERROR;
+    } finally {
+      invalidateStatus(fullPath);
+      releaseMasterClient(client);
     }
     return Status.OK;
   }
@@ -167,11 +582,15 @@ public class AlluxioClient extends DB {
   /**
    * Get status of a file.
    * RPC invoked: {@link alluxio.thrift.FileSystemMasterClientService.Iface}.getStatus
+   * In data-path mode the file content is read back through a {@link FileInStream}
+   * instead, and only the number of bytes read is stored in result. Otherwise, when
+   * {@link AlluxioMetadataCache#ENABLED_PROPERTY} is set, a cached status is
+   * returned without any RPC.
    *
    * @param dir name of the file's parent directory.
    * @param file name of the file.
-   * @param fields Ignored.
-   * @param result Store file's status.
+   * @param fields Names of the {@link AlluxioStatusFields} to return, or null for all.
+   * @param result Stores the file's status fields.
    * @return OK on success. Otherwise return ERROR. See the
    * {@link DB} class's description for a discussion of error codes.
    */
@@ -179,17 +598,59 @@ public class AlluxioClient extends DB {
   public Status read(
           String dir, String file, Set<String> fields,
           HashMap<String, ByteIterator> result) {
-    try {
-      String fullPath = "/"+dir+"/"+file;
-      AlluxioURI alluxioFile = new AlluxioURI(fullPath);
-      URIStatus alluxioFileStatus = mFileSystemMasterClient.getStatus(alluxioFile);
+    return doRead(mUriCache.get(dir, file), fields, result);
+  }
+
+  /**
+   * Start a read on the {@link AlluxioAsyncPipeline} if alluxio.async is set,
+   * and call back once result holds the file's status fields.
+   */
+  @Override
+  public void readAsync(String dir, String file, final Set<String> fields,
+                        final HashMap<String, ByteIterator> result, StatusCallback callback) {
+    if (mAsyncPipeline == null) {
+      super.readAsync(dir, file, fields, result, callback);
+      return;
+    }
+    final AlluxioURI alluxioFile = mUriCache.get(dir, file);
+    mAsyncPipeline.execute(new Callable<Status>() {
+      @Override
+      public Status call() {
+        return doRead(alluxioFile, fields, result);
+      }
+    }, callback);
+  }
 
-      byte[] statusToStream = alluxioFileStatus.toString().getBytes();
-      result.put(alluxioFile.toString(), new ByteArrayByteIterator(statusToStream));
+  private Status doRead(AlluxioURI alluxioFile, Set<String> fields, HashMap<String, ByteIterator> result) {
+    String fullPath = alluxioFile.getPath();
+    if (!mDataPath && sMetadataCache != null) {
+      URIStatus cached = sMetadataCache.get(fullPath);
+      if (cached != null) {
+        AlluxioStatusFields.put(cached, fields, result);
+        return Status.OK;
+      }
+    }
+    long generation = sMetadataCache != null ? sMetadataCache.generation(fullPath) : 0;
+    FileSystemMasterClient client = acquireRecordClient();
+    try {
+      if (mDataPath) {
+        long length = readFile(alluxioFile);
+        if (fields == null || fields.contains(AlluxioStatusFields.LENGTH)) {
+          result.put(AlluxioStatusFields.LENGTH, AlluxioStatusFields.toBytes(length));
+        }
+        return Status.OK;
+      }
+      URIStatus alluxioFileStatus = client.getStatus(alluxioFile);
+      if (sMetadataCache != null) {
+        sMetadataCache.put(fullPath, alluxioFileStatus, generation);
+      }
+      AlluxioStatusFields.put(alluxioFileStatus, fields, result);
     } catch (Exception e) {
-      System.err.println("Could not get status of file "+"/"+dir+"/"+file);
+      System.err.println("Could not get status of file "+fullPath);
       e.printStackTrace();
       return Status.ERROR;
+    } finally {
+      releaseMasterClient(client);
     }
     return Status.OK;
   }
@@ -197,38 +658,251 @@ public class AlluxioClient extends DB {
   /**
    * Set attribute of a file on Alluxio.
    * RPC invoked: {@link alluxio.thrift.FileSystemMasterClientService.Iface}.setAttribute(path, option)
+   * Alluxio files are write-once, so in data-path mode the file is deleted and
+   * written again with the new values instead.
    *
    * @param dir name of the file's parent directory.
    * @param file name of the file.
-   * @param values Ignored.
+   * @param values Written into the file in data-path mode, ignored otherwise.
    * @return OK on success. Otherwise return ERROR. See the
    * {@link DB} class's description for a discussion of error codes.
    */
   @Override
   public Status update(
           String dir, String file, HashMap<String, ByteIterator> values) {
+    return doUpdate(mUriCache.get(dir, file), values);
+  }
+
+  /**
+   * Start an update on the {@link AlluxioAsyncPipeline} if alluxio.async is
+   * set, and call back once the file is updated.
+   */
+  @Override
+  public void updateAsync(String dir, String file, final HashMap<String, ByteIterator> values,
+                          StatusCallback callback) {
+    if (mAsyncPipeline == null) {
+      super.updateAsync(dir, file, values, callback);
+      return;
+    }
+    final AlluxioURI alluxioFile = mUriCache.get(dir, file);
+    mAsyncPipeline.execute(new Callable<Status>() {
+      @Override
+      public Status call() {
+        return doUpdate(alluxioFile, values);
+      }
+    }, callback);
+  }
+
+  private Status doUpdate(AlluxioURI alluxioFile, HashMap<String, ByteIterator> values) {
+    String fullPath = alluxioFile.getPath();
+    FileSystemMasterClient client = acquireRecordClient();
     try {
-      String fullPath = "/"+dir+"/"+file;
-      AlluxioURI alluxioFile = new AlluxioURI(fullPath);
-      mFileSystemMasterClient.setAttribute(alluxioFile, SetAttributeOptions.defaults());
+      if (mDataPath) {
+        deleteFile(client, alluxioFile);
+        writeFile(alluxioFile, values);
+      } else {
+        client.setAttribute(alluxioFile, mSetAttributeOptions);
+      }
     } catch (Exception e) {
-      System.err.println("Could not set attribute to the file "+"/"+dir+"/"+file);
+      System.err.println("Could not set attribute to the file "+fullPath);
       e.printStackTrace();
       return Status.ERROR;
+    } finally {
+      invalidateStatus(fullPath);
+      releaseMasterClient(client);
     }
     return Status.OK;
   }
 
   /**
-   * Leave this unimplemented. There's no equivalent RPC operation on
-   * Alluxio master metadata server.
-   * Please make sure than there's no scan operation in your workload.
+   * List the files of a table, sorted by name, unless this thread listed the
+   * same table less than {@link #SCAN_LISTING_TTL_PROPERTY} ago.
+   * RPC invoked: {@link alluxio.thrift.FileSystemMasterClientService.Iface}.listStatus(path, option)
+   * once for every directory that holds files.
+   */
+  private void refreshListing(FileSystemMasterClient client, String table)
+      throws IOException, AlluxioException {
+    long now = System.currentTimeMillis();
+    if (mListingNames != null && table.equals(mListingTable) && now - mListingTimeMs < mListingTtlMs) {
+      return;
+    }
+    long st = System.nanoTime();
+    List<URIStatus> children = new ArrayList<URIStatus>();
+    for (String dir : mNamespace.getLeafDirectories(table)) {
+      children.addAll(client.listStatus(new AlluxioURI(dir), mListStatusOptions));
+    }
+    long en = System.nanoTime();
+    mMeasurements.measureNanos(LIST_MEASUREMENT, en - st);
+
+    Collections.sort(children, NAME_ORDER);
+    mListingStatuses = children.toArray(new URIStatus[children.size()]);
+    mListingNames = new String[mListingStatuses.length];
+    for (int i = 0; i < mListingStatuses.length; i++) {
+      mListingNames[i] = mListingStatuses[i].getName();
+    }
+    mListingTable = table;
+    mListingTimeMs = now;
+  }
+
+  /**
+   * Return the status of up to recordcount files of a table, in key order,
+   * starting at startkey. The table is listed with listStatus and the sorted
+   * listing is reused by this thread for {@link #SCAN_LISTING_TTL_PROPERTY}
+   * milliseconds, so scans page through a cached listing instead of
+   * re-listing a large directory every time.
+   *
+   * @param table name of the table directory.
+   * @param startkey name of the first file to return.
+   * @param recordcount maximum number of files to return.
+   * @param fields Names of the {@link AlluxioStatusFields} to return, or null for all.
+   * @param result Stores the status fields of each file.
+   * @return OK on success. Otherwise return ERROR. See the
+   * {@link DB} class's description for a discussion of error codes.
    */
   @Override
   public Status scan(
           String table, String startkey, int recordcount, Set<String> fields,
           Vector<HashMap<String, ByteIterator>> result) {
-    System.out.println("[Alluxio-YCSB] scan called");
-    return Status.NOT_IMPLEMENTED;
+    FileSystemMasterClient client = acquireMasterClient();
+    try {
+      refreshListing(client, table);
+    } catch (Exception e) {
+      System.err.println("Could not list table "+table);
+      e.printStackTrace();
+      return Status.ERROR;
+    } finally {
+      releaseMasterClient(client);
+    }
+
+    int start = Arrays.binarySearch(mListingNames, startkey);
+    if (start < 0) {
+      start = -start - 1;
+    }
+    int end = (int) Math.min((long) start + recordcount, mListingNames.length);
+    for (int i = start; i < end; i++) {
+      HashMap<String, ByteIterator> record = new HashMap<String, ByteIterator>();
+      AlluxioStatusFields.put(mListingStatuses[i], fields, record);
+      result.add(record);
+    }
+    return Status.OK;
+  }
+
+  /**
+   * Create a directory and any missing parents, for the MetadataWorkload.
+   * RPC invoked: {@link alluxio.thrift.FileSystemMasterClientService.Iface}.createDirectory(path, option)
+   */
+  @Override
+  public Status mkdir(String path) {
+    FileSystemMasterClient client = acquireMasterClient();
+    try {
+      client.createDirectory(new AlluxioURI(path), CreateDirectoryOptions.defaults().setRecursive(true));
+    } catch (Exception e) {
+      System.err.println("Could not create the directory "+path);
+      e.printStackTrace();
+      return Status.ERROR;
+    } finally {
+      releaseMasterClient(client);
+    }
+    return Status.OK;
+  }
+
+  /**
+   * Create an empty file and any missing parents, for the MetadataWorkload.
+   * RPC invoked: {@link alluxio.thrift.FileSystemMasterClientService.Iface}.createFile(path, option)
+   */
+  @Override
+  public Status createFile(String path) {
+    FileSystemMasterClient client = acquireMasterClient();
+    try {
+      client.createFile(new AlluxioURI(path), CreateFileOptions.defaults().setRecursive(true));
+    } catch (Exception e) {
+      System.err.println("Could not create the file "+path);
+      e.printStackTrace();
+      return Status.ERROR;
+    } finally {
+      releaseMasterClient(client);
+    }
+    return Status.OK;
+  }
+
+  /**
+   * Rename a file or directory, for the MetadataWorkload.
+   * RPC invoked: {@link alluxio.thrift.FileSystemMasterClientService.Iface}.rename(src, dst)
+   */
+  @Override
+  public Status rename(String src, String dst) {
+    FileSystemMasterClient client = acquireMasterClient();
+    try {
+      client.rename(new AlluxioURI(src), new AlluxioURI(dst));
+    } catch (Exception e) {
+      System.err.println("Could not rename "+src+" to "+dst);
+      e.printStackTrace();
+      return Status.ERROR;
+    } finally {
+      invalidateStatusTree(src);
+      invalidateStatusTree(dst);
+      releaseMasterClient(client);
+    }
+    return Status.OK;
+  }
+
+  /**
+   * List a directory, for the MetadataWorkload.
+   * RPC invoked: {@link alluxio.thrift.FileSystemMasterClientService.Iface}.listStatus(path, option)
+   */
+  @Override
+  public Status list(String path, Vector<String> result) {
+    FileSystemMasterClient client = acquireMasterClient();
+    try {
+      for (URIStatus child : client.listStatus(new AlluxioURI(path), mListStatusOptions)) {
+        result.add(child.getName());
+      }
+    } catch (Exception e) {
+      System.err.println("Could not list the directory "+path);
+      e.printStackTrace();
+      return Status.ERROR;
+    } finally {
+      releaseMasterClient(client);
+    }
+    return Status.OK;
+  }
+
+  /**
+   * Delete a path and everything below it, for the MetadataWorkload.
+   * RPC invoked: {@link alluxio.thrift.FileSystemMasterClientService.Iface}.remove(path, option)
+   */
+  @Override
+  public Status deleteRecursive(String path) {
+    FileSystemMasterClient client = acquireMasterClient();
+    try {
+      client.delete(new AlluxioURI(path), DeleteOptions.defaults().setRecursive(true));
+    } catch (Exception e) {
+      System.err.println("Could not delete "+path);
+      e.printStackTrace();
+      return Status.ERROR;
+    } finally {
+      invalidateStatusTree(path);
+      releaseMasterClient(client);
+    }
+    return Status.OK;
+  }
+
+  /**
+   * Get the status of a path, for the MetadataWorkload.
+   * RPC invoked: {@link alluxio.thrift.FileSystemMasterClientService.Iface}.getStatus
+   */
+  @Override
+  public Status stat(String path, HashMap<String, ByteIterator> result) {
+    FileSystemMasterClient client = acquireMasterClient();
+    try {
+      AlluxioStatusFields.put(client.getStatus(new AlluxioURI(path)), null, result);
+    } catch (Exception e) {
+      System.err.println("Could not get status of "+path);
+      e.printStackTrace();
+      return Status.ERROR;
+    } finally {
+      releaseMasterClient(client);
+    }
+    return Status.OK;
   }
 }
@@ -0,0 +1,33 @@
+package com.yahoo.ycsb.db;
+
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A thread-safe record of the keys this client has created during the
+ * current run.
+ *
+ * The keys are held exactly rather than folded into a fixed number of bits:
+ * the key numbers of insertorder=hashed spread over the whole long range, so
+ * any folding makes keys that were never created look created. The set takes
+ * memory for every created key.
+ */
+final class AlluxioCreatedKeys {
+  private final Set<String> mKeys =
+      Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+
+  /**
+   * Mark the given key as created.
+   */
+  void add(String key) {
+    mKeys.add(key);
+  }
+
+  /**
+   * @return true if the key has been created in this run.
+   */
+  boolean contains(String key) {
+    return mKeys.contains(key);
+  }
+}
@@ -0,0 +1,188 @@
+package com.yahoo.ycsb.db;
+
+import alluxio.client.file.URIStatus;
+import com.yahoo.ycsb.Status;
+import com.yahoo.ycsb.measurements.Measurements;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A bounded client-side cache of {@link URIStatus} by path, shared by all
+ * threads of the binding.
+ *
+ * Entries are evicted in least-recently-used order once the cache is full,
+ * and expire {@link #TTL_PROPERTY} milliseconds after they were loaded. The
+ * cache is split into independently locked segments by path hash so that
+ * threads reading different paths do not contend on one lock.
+ *
+ * Lookups are reported under the {@link #MEASUREMENT} measurement with a
+ * return code of HIT or MISS, and evictions with a return code of EVICTION,
+ * so the hit ratio can be read off the exported status counts.
+ */
+final class AlluxioMetadataCache {
+  /**
+   * Whether read() consults the metadata cache before calling getStatus.
+   */
+  public static final String ENABLED_PROPERTY = "alluxio.mdcache.enabled";
+  public static final String ENABLED_PROPERTY_DEFAULT = "false";
+
+  /**
+   * The maximum number of cached statuses.
+   */
+  public static final String SIZE_PROPERTY = "alluxio.mdcache.size";
+  public static final String SIZE_PROPERTY_DEFAULT = "100000";
+
+  /**
+   * How long, in milliseconds, a cached status stays valid. 0 never expires.
+   */
+  public static final String TTL_PROPERTY = "alluxio.mdcache.ttl";
+  public static final String TTL_PROPERTY_DEFAULT = "10000";
+
+  /**
+   * The number of independently locked segments.
+   */
+  public static final String SEGMENTS_PROPERTY = "alluxio.mdcache.segments";
+  public static final String SEGMENTS_PROPERTY_DEFAULT = "16";
+
+  public static final String MEASUREMENT = "ALLUXIO_MDCACHE";
+
+  public static final Status HIT = new Status("HIT", "The status was served from the metadata cache.");
+  public static final Status MISS = new Status("MISS", "The status was not cached or had expired.");
+  public static final Status EVICTION = new Status("EVICTION", "A cached status was evicted to make room.");
+
+  /**
+   * A cached status and the time it was loaded.
+   */
+  private static final class Entry {
+    private final URIStatus mStatus;
+    private final long mLoadTimeMs;
+
+    Entry(URIStatus status, long loadTimeMs) {
+      mStatus = status;
+      mLoadTimeMs = loadTimeMs;
+    }
+  }
+
+  /**
+   * One access-ordered segment of the cache.
+   */
+  private static final class Segment extends LinkedHashMap<String, Entry> {
+    private static final long serialVersionUID = 1L;
+
+    private final int mCapacity;
+    private final Measurements mMeasurements;
+    /** Incremented by every invalidation of a path of this segment. */
+    private long mGeneration;
+
+    Segment(int capacity, Measurements measurements) {
+      super(16, 0.75f, true);
+      mCapacity = capacity;
+      mMeasurements = measurements;
+    }
+
+    @Override
+    protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+      if (size() > mCapacity) {
+        mMeasurements.reportStatus(MEASUREMENT, EVICTION);
+        return true;
+      }
+      return false;
+    }
+  }
+
+  private final Segment[] mSegments;
+  private final long mTtlMs;
+  private final Measurements mMeasurements;
+
+  AlluxioMetadataCache(int size, long ttlMs, int segments, Measurements measurements) {
+    mTtlMs = ttlMs;
+    mMeasurements = measurements;
+    mSegments = new Segment[Math.max(1, segments)];
+    int capacity = Math.max(1, size / mSegments.length);
+    for (int i = 0; i < mSegments.length; i++) {
+      mSegments[i] = new Segment(capacity, measurements);
+    }
+  }
+
+  private Segment segmentFor(String path) {
+    int h = path.hashCode();
+    h ^= (h >>> 16);
+    return mSegments[(h & Integer.MAX_VALUE) % mSegments.length];
+  }
+
+  /**
+   * @return the cached status of path, or null if it is not cached or has
+   *         expired. Reports a HIT or MISS.
+   */
+  URIStatus get(String path) {
+    Segment segment = segmentFor(path);
+    Entry entry;
+    synchronized (segment) {
+      entry = segment.get(path);
+      if (entry != null && mTtlMs > 0 && System.currentTimeMillis() - entry.mLoadTimeMs >= mTtlMs) {
+        segment.remove(path);
+        entry = null;
+      }
+    }
+    mMeasurements.reportStatus(MEASUREMENT, entry == null ? MISS : HIT);
+    return entry == null ? null : entry.mStatus;
+  }
+
+  /**
+   * @return the generation to pass to {@link #put} with the status of path,
+   *         taken before loading it.
+   */
+  long generation(String path) {
+    Segment segment = segmentFor(path);
+    synchronized (segment) {
+      return segment.mGeneration;
+    }
+  }
+
+  /**
+   * Cache the status just loaded for path, unless path was invalidated since
+   * generation was taken, in which case the status may predate the change.
+   */
+  void put(String path, URIStatus status, long generation) {
+    Segment segment = segmentFor(path);
+    Entry entry = new Entry(status, System.currentTimeMillis());
+    synchronized (segment) {
+      if (segment.mGeneration == generation) {
+        segment.put(path, entry);
+      }
+    }
+  }
+
+  /**
+   * Drop path from the cache after this client changed or removed the file.
+   */
+  void invalidate(String path) {
+    Segment segment = segmentFor(path);
+    synchronized (segment) {
+      segment.remove(path);
+      segment.mGeneration++;
+    }
+  }
+
+  /**
+   * Drop path and everything below it from the cache after this client
+   * renamed or removed a directory. Scans every segment.
+   */
+  void invalidatePrefix(String path) {
+    String children = path.endsWith("/") ? path : path + "/";
+    for (Segment segment : mSegments) {
+      synchronized (segment) {
+        Iterator<String> paths = segment.keySet().iterator();
+        while (paths.hasNext()) {
+          String cached = paths.next();
+          if (cached.equals(path) || cached.startsWith(children)) {
+            paths.remove();
+          }
+        }
+        segment.mGeneration++;
+      }
+    }
+  }
+}
@@ -0,0 +1,187 @@
+package com.yahoo.ycsb.db;
+
+import alluxio.AlluxioURI;
+import alluxio.client.file.FileSystemMasterClient;
+import alluxio.client.file.options.CreateDirectoryOptions;
+import com.yahoo.ycsb.DBException;
+import com.yahoo.ycsb.Utils;
+
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Maps YCSB keys to Alluxio paths.
+ *
+ * With the "hashed" layout each key is placed in a subdirectory tree of
+ * {@link #DEPTH_PROPERTY} levels with {@link #FANOUT_PROPERTY} children per
+ * level, chosen from a hash of the key, e.g. /usertable/3/12/user42. This
+ * spreads creates and deletes over many parent inodes instead of serializing
+ * them all on the lock of the table directory. The "flat" layout puts every
+ * file directly under the table directory, e.g. /usertable/user42.
+ */
+final class AlluxioNamespace {
+  /**
+   * The namespace layout, either "hashed" or "flat".
+   */
+  public static final String LAYOUT_PROPERTY = "alluxio.namespace.layout";
+  public static final String LAYOUT_PROPERTY_DEFAULT = "hashed";
+
+  /**
+   * The number of directory levels between the table directory and a file
+   * in the hashed layout.
+   */
+  public static final String DEPTH_PROPERTY = "alluxio.namespace.depth";
+  public static final String DEPTH_PROPERTY_DEFAULT = "2";
+
+  /**
+   * The number of child directories per level in the hashed layout.
+   */
+  public static final String FANOUT_PROPERTY = "alluxio.namespace.fanout";
+  public static final String FANOUT_PROPERTY_DEFAULT = "16";
+
+  /**
+   * The number of threads used to pre-create the hashed directory tree.
+   */
+  public static final String INIT_THREADS_PROPERTY = "alluxio.namespace.init.threads";
+  public static final String INIT_THREADS_PROPERTY_DEFAULT = "16";
+
+  private final boolean mHashed;
+  private final int mDepth;
+  private final int mFanout;
+  private final int mInitThreads;
+
+  AlluxioNamespace(Properties props) throws DBException {
+    String layout = props.getProperty(LAYOUT_PROPERTY, LAYOUT_PROPERTY_DEFAULT);
+    if (layout.equals("hashed")) {
+      mHashed = true;
+    } else if (layout.equals("flat")) {
+      mHashed = false;
+    } else {
+      throw new DBException("Unknown " + LAYOUT_PROPERTY + "=" + layout);
+    }
+    mDepth = Integer.parseInt(props.getProperty(DEPTH_PROPERTY, DEPTH_PROPERTY_DEFAULT));
+    mFanout = Integer.parseInt(props.getProperty(FANOUT_PROPERTY, FANOUT_PROPERTY_DEFAULT));
+    mInitThreads = Integer.parseInt(props.getProperty(INIT_THREADS_PROPERTY, INIT_THREADS_PROPERTY_DEFAULT));
+    if (mHashed && (mDepth < 1 || mFanout < 1)) {
+      throw new DBException(DEPTH_PROPERTY + " and " + FANOUT_PROPERTY + " must be positive");
+    }
+  }
+
+  /**
+   * @return whether keys are spread over a hashed directory tree.
+   */
+  boolean isHashed() {
+    return mHashed;
+  }
+
+  /**
+   * @return the full path of the file holding the given key.
+   */
+  String getPath(String table, String key) {
+    StringBuilder path = new StringBuilder(table.length() + key.length() + 4 * mDepth + 2);
+    path.append('/').append(table);
+    if (mHashed) {
+      int hash = Utils.FNVhash32(key.hashCode()) & Integer.MAX_VALUE;
+      for (int i = 0; i < mDepth; i++) {
+        path.append('/').append(hash % mFanout);
+        hash /= mFanout;
+      }
+    }
+    return path.append('/').append(key).toString();
+  }
+
+  /**
+   * @return every directory of the hashed tree under the table directory, one
+   *         list per level, starting with the level right below the table.
+   */
+  List<List<String>> getDirectoryLevels(String table) {
+    List<List<String>> levels = new ArrayList<List<String>>();
+    if (!mHashed) {
+      return levels;
+    }
+    List<String> parents = new ArrayList<String>();
+    parents.add("/" + table);
+    for (int i = 0; i < mDepth; i++) {
+      List<String> level = new ArrayList<String>(parents.size() * mFanout);
+      for (String parent : parents) {
+        for (int j = 0; j < mFanout; j++) {
+          level.add(parent + "/" + j);
+        }
+      }
+      levels.add(level);
+      parents = level;
+    }
+    return levels;
+  }
+
+  /**
+   * @return the directories that directly contain files: the deepest level of
+   *         the hashed tree, or the table directory itself for the flat layout.
+   */
+  List<String> getLeafDirectories(String table) {
+    List<List<String>> levels = getDirectoryLevels(table);
+    if (levels.isEmpty()) {
+      List<String> root = new ArrayList<String>();
+      root.add("/" + table);
+      return root;
+    }
+    return levels.get(levels.size() - 1);
+  }
+
+  /**
+   * Create the table directory and, for the hashed layout, the whole
+   * directory tree below it. Each level is created in parallel by
+   * {@link #INIT_THREADS_PROPERTY} threads, each with its own master client,
+   * before moving on to the next level.
+   */
+  void createDirectories(final InetSocketAddress masterAddress, String table) throws DBException {
+    List<String> root = new ArrayList<String>();
+    root.add("/" + table);
+    createInParallel(masterAddress, root, 1);
+    for (List<String> level : getDirectoryLevels(table)) {
+      createInParallel(masterAddress, level, mInitThreads);
+    }
+  }
+
+  private static void createInParallel(final InetSocketAddress masterAddress, final List<String> dirs,
+                                       int threadCount) throws DBException {
+    final int threads = Math.max(1, Math.min(threadCount, dirs.size()));
+    final AtomicReference<Exception> failure = new AtomicReference<Exception>();
+    List<Thread> workers = new ArrayList<Thread>(threads);
+    for (int t = 0; t < threads; t++) {
+      final int offset = t;
+      Thread worker = new Thread("alluxio-mkdir-" + t) {
+        @Override
+        public void run() {
+          FileSystemMasterClient client = new FileSystemMasterClient(masterAddress);
+          CreateDirectoryOptions options = CreateDirectoryOptions.defaults().setAllowExists(true);
+          try {
+            for (int i = offset; i < dirs.size(); i += threads) {
+              client.createDirectory(new AlluxioURI(dirs.get(i)), options);
+            }
+          } catch (Exception e) {
+            failure.compareAndSet(null, e);
+          } finally {
+            client.close();
+          }
+        }
+      };
+      workers.add(worker);
+      worker.start();
+    }
+    for (Thread worker : workers) {
+      try {
+        worker.join();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new DBException("Interrupted while creating the Alluxio namespace", e);
+      }
+    }
+    if (failure.get() != null) {
+      throw new DBException("Could not create the Alluxio namespace", failure.get());
+    }
+  }
+}
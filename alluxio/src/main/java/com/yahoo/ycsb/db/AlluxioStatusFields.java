@@ -0,0 +1,95 @@
+package com.yahoo.ycsb.db;
+
+import alluxio.client.file.URIStatus;
+import com.yahoo.ycsb.ByteArrayByteIterator;
+import com.yahoo.ycsb.ByteIterator;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Turns the interesting parts of a {@link URIStatus} into YCSB fields, one
+ * small {@link ByteIterator} per field, instead of serializing the whole
+ * status through toString().
+ *
+ * Numbers are stored as their decimal ASCII digits and booleans as "true" or
+ * "false", so the values print and compare the same way on every run.
+ */
+final class AlluxioStatusFields {
+  /** The file length in bytes. */
+  public static final String LENGTH = "length";
+  /** The last modification time, in milliseconds since the epoch. */
+  public static final String LAST_MODIFICATION_TIME = "lastModificationTimeMs";
+  /** The number of blocks of the file. */
+  public static final String BLOCK_COUNT = "blockCount";
+  /** The percentage of the file held in Alluxio memory. */
+  public static final String IN_MEMORY_PERCENTAGE = "inMemoryPercentage";
+  /** Whether the file has been persisted to the under storage. */
+  public static final String PERSISTED = "persisted";
+
+  private static final List<String> ALL = Arrays.asList(
+      LENGTH, LAST_MODIFICATION_TIME, BLOCK_COUNT, IN_MEMORY_PERCENTAGE, PERSISTED);
+
+  private static final byte[] TRUE = {'t', 'r', 'u', 'e'};
+  private static final byte[] FALSE = {'f', 'a', 'l', 's', 'e'};
+
+  private AlluxioStatusFields() {
+  }
+
+  /**
+   * Store the requested fields of status in result.
+   *
+   * @param fields the field names to store, or null for all of them. Names
+   *               that are not status fields are ignored, and if none of
+   *               them is one, as with CoreWorkload's field0..N, all status
+   *               fields are stored.
+   */
+  static void put(URIStatus status, Set<String> fields, HashMap<String, ByteIterator> result) {
+    if (fields != null && Collections.disjoint(fields, ALL)) {
+      fields = null;
+    }
+    if (fields == null || fields.contains(LENGTH)) {
+      result.put(LENGTH, toBytes(status.getLength()));
+    }
+    if (fields == null || fields.contains(LAST_MODIFICATION_TIME)) {
+      result.put(LAST_MODIFICATION_TIME, toBytes(status.getLastModificationTimeMs()));
+    }
+    if (fields == null || fields.contains(BLOCK_COUNT)) {
+      result.put(BLOCK_COUNT, toBytes(status.getBlockIds().size()));
+    }
+    if (fields == null || fields.contains(IN_MEMORY_PERCENTAGE)) {
+      result.put(IN_MEMORY_PERCENTAGE, toBytes(status.getInMemoryPercentage()));
+    }
+    if (fields == null || fields.contains(PERSISTED)) {
+      result.put(PERSISTED, new ByteArrayByteIterator(status.isPersisted() ? TRUE : FALSE));
+    }
+  }
+
+  /**
+   * @return the decimal digits of value, without going through a String.
+   */
+  static ByteIterator toBytes(long value) {
+    if (value == Long.MIN_VALUE) {
+      return new ByteArrayByteIterator(Long.toString(value).getBytes());
+    }
+    boolean negative = value < 0;
+    long v = negative ? -value : value;
+    int len = negative ? 2 : 1;
+    for (long rest = v / 10; rest != 0; rest /= 10) {
+      len++;
+    }
+    byte[] digits = new byte[len];
+    int i = len;
+    do {
+      digits[--i] = (byte) ('0' + v % 10);
+      v /= 10;
+    } while (v != 0);
+    if (negative) {
+      digits[0] = '-';
+    }
+    return new ByteArrayByteIterator(digits);
+  }
+}
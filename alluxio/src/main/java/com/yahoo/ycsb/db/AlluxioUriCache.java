@@ -0,0 +1,78 @@
+package com.yahoo.ycsb.db;
+
+import alluxio.AlluxioURI;
+
+import com.yahoo.ycsb.Client;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * A bounded, per-thread cache of the {@link AlluxioURI} of each key of the
+ * table, so that repeated operations on a key neither rebuild its path
+ * string nor parse it into a URI again.
+ *
+ * Keys of other tables are resolved without caching. The cache is not
+ * thread-safe; each {@link AlluxioClient} owns one and only uses it from its
+ * YCSB thread.
+ */
+final class AlluxioUriCache {
+  /**
+   * The maximum number of URIs cached by all threads together, split evenly
+   * between them. 0 disables the cache.
+   */
+  public static final String SIZE_PROPERTY = "alluxio.uricache.size";
+  public static final String SIZE_PROPERTY_DEFAULT = "100000";
+
+  private final AlluxioNamespace mNamespace;
+  private final String mTable;
+  private final Map<String, AlluxioURI> mUris;
+
+  /**
+   * @param capacity the maximum number of URIs this thread caches.
+   */
+  AlluxioUriCache(AlluxioNamespace namespace, String table, final int capacity) {
+    mNamespace = namespace;
+    mTable = table;
+    if (capacity <= 0) {
+      mUris = null;
+      return;
+    }
+    mUris = new LinkedHashMap<String, AlluxioURI>(Math.min(capacity, 1 << 16), 0.75f, true) {
+      private static final long serialVersionUID = 1L;
+
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<String, AlluxioURI> eldest) {
+        return size() > capacity;
+      }
+    };
+  }
+
+  /**
+   * @return this thread's share of the total cache size in props.
+   */
+  static int capacity(Properties props) {
+    int total = Integer.parseInt(props.getProperty(SIZE_PROPERTY, SIZE_PROPERTY_DEFAULT));
+    int threads = Integer.parseInt(props.getProperty(Client.THREAD_COUNT_PROPERTY, "1"));
+    if (total <= 0) {
+      return 0;
+    }
+    return Math.max(1, total / Math.max(1, threads));
+  }
+
+  /**
+   * @return the URI of the file holding the given key.
+   */
+  AlluxioURI get(String table, String key) {
+    if (mUris == null || !mTable.equals(table)) {
+      return new AlluxioURI(mNamespace.getPath(table, key));
+    }
+    AlluxioURI uri = mUris.get(key);
+    if (uri == null) {
+      uri = new AlluxioURI(mNamespace.getPath(table, key));
+      mUris.put(key, uri);
+    }
+    return uri;
+  }
+}
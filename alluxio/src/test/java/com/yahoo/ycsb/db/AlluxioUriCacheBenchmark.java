@@ -0,0 +1,98 @@
+package com.yahoo.ycsb.db;
+
+import alluxio.AlluxioURI;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the cost of resolving a key to its {@link AlluxioURI} with and
+ * without {@link AlluxioUriCache}. Run with the GC profiler to see the
+ * allocation per operation (gc.alloc.rate.norm):
+ *
+ * <pre>
+ * mvn -pl core,alluxio test-compile dependency:build-classpath \
+ *   -Dmdep.outputFile=target/cp.txt -Dmdep.includeScope=test
+ * java -cp alluxio/target/test-classes:alluxio/target/classes:$(cat alluxio/target/cp.txt) \
+ *   org.openjdk.jmh.Main AlluxioUriCacheBenchmark -prof gc
+ * </pre>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AlluxioUriCacheBenchmark {
+  private static final String TABLE = "usertable";
+
+  @Param({"flat", "hashed"})
+  private String layout;
+
+  @Param({"10000"})
+  private int keycount;
+
+  private String[] keys;
+  private AlluxioNamespace namespace;
+  private AlluxioUriCache cache;
+  private int next;
+
+  @Setup
+  public void setup() throws Exception {
+    Properties props = new Properties();
+    props.setProperty(AlluxioNamespace.LAYOUT_PROPERTY, layout);
+    namespace = new AlluxioNamespace(props);
+    cache = new AlluxioUriCache(namespace, TABLE, keycount);
+    keys = new String[keycount];
+    for (int i = 0; i < keycount; i++) {
+      keys[i] = "user" + i;
+      cache.get(TABLE, keys[i]);
+    }
+  }
+
+  private String nextKey() {
+    if (++next == keys.length) {
+      next = 0;
+    }
+    return keys[next];
+  }
+
+  /** What every operation did before: concatenate the path and parse it. */
+  @Benchmark
+  public AlluxioURI concatenateAndParse() {
+    return new AlluxioURI("/" + TABLE + "/" + nextKey());
+  }
+
+  /** Build the namespace path and parse it on every operation. */
+  @Benchmark
+  public AlluxioURI uncached() {
+    return new AlluxioURI(namespace.getPath(TABLE, nextKey()));
+  }
+
+  /** Look the URI up in a warm cache. */
+  @Benchmark
+  public AlluxioURI cached() {
+    return cache.get(TABLE, nextKey());
+  }
+
+  public static void main(String[] args) throws Exception {
+    new Runner(new OptionsBuilder()
+        .include(AlluxioUriCacheBenchmark.class.getSimpleName())
+        .addProfiler(GCProfiler.class)
+        .build()).run();
+  }
+}
@@ -0,0 +1,29 @@
+package com.yahoo.ycsb.db;
+
+import com.yahoo.ycsb.Utils;
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+/**
+ * Test class for {@link AlluxioCreatedKeys}.
+ */
+public class TestAlluxioCreatedKeys {
+
+  @Test
+  public void testHashedLoadDeletesNothing() {
+    AlluxioCreatedKeys created = new AlluxioCreatedKeys();
+    int deletes = 0;
+    // Load like insertorder=hashed does, deleting first as insert would.
+    for (long keynum = 0; keynum < 100000; keynum++) {
+      String key = "user" + Utils.hash(keynum);
+      if (created.contains(key)) {
+        deletes++;
+      }
+      created.add(key);
+    }
+    assertEquals(deletes, 0);
+    assertTrue(created.contains("user" + Utils.hash(42)), "a key created in this run is deleted first");
+  }
+}
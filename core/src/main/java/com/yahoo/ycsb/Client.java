@@ -34,7 +34,6 @@ import java.util.Map.Entry;
 import java.util.Properties;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.locks.LockSupport;
 
 import org.apache.htrace.core.Tracer;
 import org.apache.htrace.core.TraceScope;
@@ -79,6 +78,9 @@ class StatusThread extends Thread
   private long lastGCCount = 0;
   private long lastGCTime = 0;
 
+  /** Adjusts the concurrency after each interval, if set. */
+  private ConcurrencyController _controller;
+
   /**
    * Creates a new StatusThread without JVM stat tracking.
    *
@@ -117,6 +119,15 @@ class StatusThread extends Thread
     _trackJVMStats = trackJVMStats;
   }
   
+  /**
+   * Have the given controller adjust the concurrency to the latency of each
+   * status interval.
+   */
+  public void setConcurrencyController(ConcurrencyController controller)
+  {
+    _controller=controller;
+  }
+
   /**
    * Run and periodically report status.
    */
@@ -136,6 +147,9 @@ class StatusThread extends Thread
       long nowMs=System.currentTimeMillis();
 
       lastTotalOps = computeStats(startTimeMs, startIntervalMs, nowMs, lastTotalOps);
+      if (_controller != null) {
+        _controller.update(lastTotalOps, nowMs);
+      }
       
       if (_trackJVMStats) {
         measureJVM();
@@ -351,191 +365,6 @@ class RemainingFormatter {
   }
 }
 
-/**
- * A thread for executing transactions or data inserts to the database.
- *
- * @author cooperb
- *
- */
-class ClientThread implements Runnable
-{
-  /** Counts down each of the clients completing. */
-  private final CountDownLatch _completeLatch;
-
-  private static boolean _spinSleep;
-  DB _db;
-  boolean _dotransactions;
-  Workload _workload;
-  int _opcount;
-  double _targetOpsPerMs;
-
-  int _opsdone;
-  int _threadid;
-  int _threadcount;
-  Object _workloadstate;
-  Properties _props;
-  long _targetOpsTickNs;
-  final Measurements _measurements;
-
-  /**
-   * Constructor.
-   *
-   * @param db the DB implementation to use
-   * @param dotransactions true to do transactions, false to insert data
-   * @param workload the workload to use
-   * @param props the properties defining the experiment
-   * @param opcount the number of operations (transactions or inserts) to do
-   * @param targetperthreadperms target number of operations per thread per ms
-   * @param completeLatch The latch tracking the completion of all clients.
-   */
-  public ClientThread(DB db, boolean dotransactions, Workload workload, Properties props, int opcount, double targetperthreadperms, CountDownLatch completeLatch)
-  {
-    _db=db;
-    _dotransactions=dotransactions;
-    _workload=workload;
-    _opcount=opcount;
-    _opsdone=0;
-    if(targetperthreadperms > 0){
-      _targetOpsPerMs=targetperthreadperms;
-      _targetOpsTickNs=(long)(1000000/_targetOpsPerMs);
-    }
-    _props=props;
-    _measurements = Measurements.getMeasurements();
-    _spinSleep = Boolean.valueOf(_props.getProperty("spin.sleep", "false"));
-    _completeLatch=completeLatch;
-  }
-
-  public int getOpsDone()
-  {
-    return _opsdone;
-  }
-
-  @Override
-  public void run()
-  {
-    try
-    {
-      _db.init();
-    }
-    catch (DBException e)
-    {
-      e.printStackTrace();
-      e.printStackTrace(System.out);
-      return;
-    }
-
-    try
-    {
-      _workloadstate=_workload.initThread(_props,_threadid,_threadcount);
-    }
-    catch (WorkloadException e)
-    {
-      e.printStackTrace();
-      e.printStackTrace(System.out);
-      return;
-    }
-
-    //NOTE: Switching to using nanoTime and parkNanos for time management here such that the measurements
-    // and the client thread have the same view on time.
-
-    //spread the thread operations out so they don't all hit the DB at the same time
-    // GH issue 4 - throws exception if _target>1 because random.nextInt argument must be >0
-    // and the sleep() doesn't make sense for granularities < 1 ms anyway
-    if ((_targetOpsPerMs > 0) && (_targetOpsPerMs <= 1.0))
-    {
-      long randomMinorDelay = Utils.random().nextInt((int) _targetOpsTickNs);
-      sleepUntil(System.nanoTime() + randomMinorDelay);
-    }
-    try
-    {
-      if (_dotransactions)
-      {
-        long startTimeNanos = System.nanoTime();
-
-        while (((_opcount == 0) || (_opsdone < _opcount)) && !_workload.isStopRequested())
-        {
-
-          if (!_workload.doTransaction(_db,_workloadstate))
-          {
-            break;
-          }
-
-          _opsdone++;
-
-          throttleNanos(startTimeNanos);
-        }
-      }
-      else
-      {
-        long startTimeNanos = System.nanoTime();
-
-        while (((_opcount == 0) || (_opsdone < _opcount)) && !_workload.isStopRequested())
-        {
-
-          if (!_workload.doInsert(_db,_workloadstate))
-          {
-            break;
-          }
-
-          _opsdone++;
-
-          throttleNanos(startTimeNanos);
-        }
-      }
-    }
-    catch (Exception e)
-    {
-      e.printStackTrace();
-      e.printStackTrace(System.out);
-      System.exit(0);
-    }
-
-    try
-    {
-      _measurements.setIntendedStartTimeNs(0);
-      _db.cleanup();
-    }
-    catch (DBException e)
-    {
-      e.printStackTrace();
-      e.printStackTrace(System.out);
-      return;
-    }
-    finally
-    {
-      _completeLatch.countDown();
-    }
-  }
-
-  static void sleepUntil(long deadline) {
-    long now = System.nanoTime();
-    while((now = System.nanoTime()) < deadline) {
-      if (!_spinSleep) {
-        LockSupport.parkNanos(deadline - now);
-      }
-    }
-  }
-  private void throttleNanos(long startTimeNanos) {
-    //throttle the operations
-    if (_targetOpsPerMs > 0)
-    {
-      // delay until next tick
-      long deadline = startTimeNanos + _opsdone*_targetOpsTickNs;
-      sleepUntil(deadline);
-      _measurements.setIntendedStartTimeNs(deadline);
-    }
-  }
-  
-  /**
-   * the total amount of work this thread is still expected to do
-   */
-  public int getOpsTodo()
-  {
-    int todo = _opcount - _opsdone;
-    return todo < 0 ? 0 : todo;
-  }
-}
-
 /**
  * Main class for executing YCSB.
  */
@@ -641,6 +470,8 @@ public class Client
     System.out.println("Required properties:");
     System.out.println("  "+WORKLOAD_PROPERTY+": the name of the workload class to use (e.g. com.yahoo.ycsb.workloads.CoreWorkload)");
     System.out.println("");
+    System.out.println("To run a phase on several client processes with combined results, set the");
+    System.out.println("\""+Coordinator.WORKERS_PROPERTY+"\" property; see workloads/workload_template.");
     System.out.println("To run the transaction phase from multiple servers, start a separate client on each.");
     System.out.println("To run the load phase from multiple servers, start a separate client on each; additionally,");
     System.out.println("use the \"insertcount\" and \"insertstart\" properties to divide up the records to be inserted");
@@ -658,44 +489,62 @@ public class Client
   }
 
 
+  /**
+   * Create the exporter the properties ask for, writing to the export file or
+   * stdout.
+   */
+  static MeasurementsExporter createExporter(Properties props) throws IOException
+  {
+    // if no destination file is provided the results will be written to stdout
+    OutputStream out;
+    String exportFile = props.getProperty(EXPORT_FILE_PROPERTY);
+    if (exportFile == null)
+    {
+      out = System.out;
+    } else
+    {
+      out = new FileOutputStream(exportFile);
+    }
+
+    // if no exporter is provided the default text one will be used
+    String exporterStr = props.getProperty(EXPORTER_PROPERTY, "com.yahoo.ycsb.measurements.exporter.TextMeasurementsExporter");
+    try
+    {
+      return (MeasurementsExporter) Class.forName(exporterStr).getConstructor(OutputStream.class).newInstance(out);
+    } catch (Exception e)
+    {
+      System.err.println("Could not find exporter " + exporterStr
+                         + ", will use default text reporter.");
+      e.printStackTrace();
+      return new TextMeasurementsExporter(out);
+    }
+  }
+
   /**
    * Exports the measurements to either sysout or a file using the exporter
    * loaded from conf.
    * @throws IOException Either failed to write to output stream or failed to close it.
    */
-  private static void exportMeasurements(Properties props, int opcount, long runtime)
+  private static void exportMeasurements(Properties props, long opcount, long runtime, long cputime,
+                                         SaturationSweep sweep, ConcurrencyController controller)
     throws IOException
   {
     MeasurementsExporter exporter = null;
     try
     {
-      // if no destination file is provided the results will be written to stdout
-      OutputStream out;
-      String exportFile = props.getProperty(EXPORT_FILE_PROPERTY);
-      if (exportFile == null)
-      {
-        out = System.out;
-      } else
-      {
-        out = new FileOutputStream(exportFile);
-      }
-
-      // if no exporter is provided the default text one will be used
-      String exporterStr = props.getProperty(EXPORTER_PROPERTY, "com.yahoo.ycsb.measurements.exporter.TextMeasurementsExporter");
-      try
-      {
-        exporter = (MeasurementsExporter) Class.forName(exporterStr).getConstructor(OutputStream.class).newInstance(out);
-      } catch (Exception e)
-      {
-        System.err.println("Could not find exporter " + exporterStr
-                           + ", will use default text reporter.");
-        e.printStackTrace();
-        exporter = new TextMeasurementsExporter(out);
-      }
+      exporter = createExporter(props);
 
       exporter.write("OVERALL", "RunTime(ms)", runtime);
       double throughput = 1000.0 * (opcount) / (runtime);
       exporter.write("OVERALL", "Throughput(ops/sec)", throughput);
+      if (cputime > 0)
+      {
+        exporter.write("OVERALL", "CpuTime(ms)", cputime / 1000000);
+        if (opcount > 0)
+        {
+          exporter.write("OVERALL", "CpuPerOp(us)", cputime / 1000.0 / opcount);
+        }
+      }
       
       final Map<String, Long[]> gcs = Utils.getGCStatst();
       long totalGCCount = 0;
@@ -720,6 +569,16 @@ public class Client
         exporter.write("MIN_SYS_LOAD_AVG", "Load", statusthread.getMinLoadAvg());
       }
 
+      if (sweep != null)
+      {
+        sweep.exportMeasurements(exporter);
+      }
+
+      if (controller != null)
+      {
+        controller.exportMeasurements(exporter);
+      }
+
       Measurements.getMeasurements().exportMeasurements(exporter);
     } finally
     {
@@ -923,6 +782,39 @@ public class Client
 
     props.setProperty(DO_TRANSACTIONS_PROPERTY, String.valueOf(dotransactions));
 
+    if (Coordinator.isCoordinator(props))
+    {
+      try
+      {
+        new Coordinator(props, args).run(status);
+      }
+      catch (IllegalArgumentException | IOException | InterruptedException e)
+      {
+        System.err.println("Coordinated run failed: " + e.getMessage());
+        e.printStackTrace();
+        System.exit(-1);
+      }
+      System.exit(0);
+    }
+
+    CoordinatedWorker coordinated=null;
+    if (CoordinatedWorker.isWorker(props))
+    {
+      try
+      {
+        coordinated=new CoordinatedWorker(props);
+      }
+      catch (IOException e)
+      {
+        System.err.println("Could not join the coordinator: " + e.getMessage());
+        System.exit(-1);
+      }
+      // The coordinator reports the progress and results of all workers; this
+      // worker's own results go to its output.
+      status=false;
+      props.remove(EXPORT_FILE_PROPERTY);
+    }
+
     long maxExecutionTime = Integer.parseInt(props.getProperty(MAX_EXECUTION_TIME, "0"));
 
     //get number of threads, target and db
@@ -932,7 +824,91 @@ public class Client
 
     //compute the target throughput
     double targetperthreadperms=-1;
-    if (target>0)
+    boolean openloop=OpenLoopScheduler.isOpenLoop(props);
+    if (openloop)
+    {
+      if (target<=0)
+      {
+        System.out.println("Open-loop arrivals require a target throughput.");
+        System.exit(0);
+      }
+      // Latency is measured from each scheduled arrival unless asked otherwise.
+      if (props.getProperty(Measurements.MEASUREMENT_INTERVAL)==null)
+      {
+        props.setProperty(Measurements.MEASUREMENT_INTERVAL, "both");
+      }
+    }
+    boolean globallimit=false;
+    try
+    {
+      globallimit=target>0 && !openloop && RateLimiter.isGlobal(props);
+    }
+    catch (IllegalArgumentException e)
+    {
+      System.out.println(e.getMessage());
+      System.exit(0);
+    }
+
+    int asyncdepth=PipelinedDB.getDepth(props);
+    if (asyncdepth < 1)
+    {
+      System.out.println(PipelinedDB.ASYNC_DEPTH_PROPERTY + " must be at least 1.");
+      System.exit(0);
+    }
+
+    ClientThreadFactory threadfactory=null;
+    try
+    {
+      threadfactory=new ClientThreadFactory(props);
+    }
+    catch (IllegalArgumentException e)
+    {
+      System.out.println(e.getMessage());
+      System.exit(0);
+    }
+
+    boolean controlled=ConcurrencyController.isEnabled(props);
+    if (controlled)
+    {
+      if (target>0 || openloop || SaturationSweep.isSweep(props))
+      {
+        System.out.println("The concurrency controller needs closed-loop arrivals without a target or sweep.");
+        System.exit(0);
+      }
+      if (!props.getProperty(Measurements.MEASUREMENT_TYPE_PROPERTY, "hdrhistogram").equals("hdrhistogram"))
+      {
+        System.err.println("The concurrency controller needs "+Measurements.MEASUREMENT_TYPE_PROPERTY+"=hdrhistogram.");
+        System.exit(-1);
+      }
+      // The status thread drives the controller.
+      status=true;
+    }
+
+    SaturationSweep sweep=null;
+    if (SaturationSweep.isSweep(props))
+    {
+      if (asyncdepth > 1)
+      {
+        System.out.println("A sweep runs each operation synchronously; unset "
+            + PipelinedDB.ASYNC_DEPTH_PROPERTY + ".");
+        System.exit(0);
+      }
+      if (!dotransactions || openloop)
+      {
+        System.out.println("A sweep requires the transaction phase and closed-loop arrivals.");
+        System.exit(0);
+      }
+      try
+      {
+        sweep=new SaturationSweep(props, threadcount, target);
+      }
+      catch (IllegalArgumentException e)
+      {
+        System.out.println(e.getMessage());
+        System.exit(0);
+      }
+    }
+    else if (target>0 && !openloop && !globallimit)
     {
       double targetperthread=((double)target)/((double)threadcount);
       targetperthreadperms=targetperthread/1000.0;
@@ -1021,32 +997,70 @@ public class Client
     {
       e.printStackTrace();
       e.printStackTrace(System.out);
-      System.exit(0);
+      System.exit(-1);
     }
 
     //run the workload
 
     System.err.println("Starting test.");
+    if (sweep != null)
+    {
+      // The sweep needs a DB for the most threads any step runs.
+      threadcount=sweep.getMaxThreads();
+    }
     final CountDownLatch completeLatch = new CountDownLatch(threadcount);
     final List<ClientThread> clients = new ArrayList<ClientThread>(threadcount);
+    OpenLoopScheduler scheduler = null;
+    RateLimiter ratelimiter = null;
+    ConcurrencyController controller = null;
+    Warmup warmup = null;
+    if (sweep == null && Warmup.isEnabled(props))
+    {
+      warmup = new Warmup(props);
+    }
 
     boolean initFailed = false;
     try (final TraceScope span = tracer.newScope(CLIENT_INIT_SPAN)) {
 
-      int opcount;
+      long opcount;
       if (dotransactions)
       {
-        opcount=Integer.parseInt(props.getProperty(OPERATION_COUNT_PROPERTY,"0"));
+        opcount=Long.parseLong(props.getProperty(OPERATION_COUNT_PROPERTY,"0"));
       }
       else
       {
         if (props.containsKey(INSERT_COUNT_PROPERTY))
         {
-          opcount=Integer.parseInt(props.getProperty(INSERT_COUNT_PROPERTY,"0"));
+          opcount=Long.parseLong(props.getProperty(INSERT_COUNT_PROPERTY,"0"));
         }
         else
         {
-          opcount=Integer.parseInt(props.getProperty(RECORD_COUNT_PROPERTY, DEFAULT_RECORD_COUNT));
+          opcount=Long.parseLong(props.getProperty(RECORD_COUNT_PROPERTY, DEFAULT_RECORD_COUNT));
+        }
+      }
+
+      if (openloop)
+      {
+        // The client threads become a worker pool fed by the scheduler,
+        // which alone decides how many operations are issued.
+        scheduler = new OpenLoopScheduler(props, target, opcount, threadcount, workload);
+      }
+      else if (globallimit && sweep == null)
+      {
+        // Likewise, any free thread takes the next slot until opcount are done.
+        ratelimiter = new RateLimiter(props, target, opcount);
+      }
+      else if (controlled)
+      {
+        // And any active thread takes the next operation.
+        try
+        {
+          controller = new ConcurrencyController(props, threadcount, opcount, workload);
+        }
+        catch (IllegalArgumentException e)
+        {
+          System.out.println(e.getMessage());
+          System.exit(0);
         }
       }
 
@@ -1065,7 +1079,7 @@ public class Client
         }
 
 
-        int threadopcount = opcount / threadcount;
+        long threadopcount = opcount / threadcount;
 
         // ensure correct number of operations, in case opcount is not a multiple of threadcount
         if (threadid<opcount%threadcount)
@@ -1073,7 +1087,27 @@ public class Client
           ++threadopcount;
         }
 
+        if (scheduler != null || ratelimiter != null || controller != null)
+        {
+          threadopcount = 0;
+        }
+
+        if (sweep != null)
+        {
+          sweep.addWorker(db);
+          continue;
+        }
+
+        if (asyncdepth > 1)
+        {
+          db = new PipelinedDB(db, asyncdepth);
+        }
+
         ClientThread t=new ClientThread(db,dotransactions,workload,props,threadopcount, targetperthreadperms, completeLatch);
+        t.setOpenLoopScheduler(scheduler);
+        t.setRateLimiter(ratelimiter);
+        t.setConcurrencyController(controller, threadid);
+        t.setWarmup(warmup);
 
         clients.add(t);
       }
@@ -1085,7 +1119,7 @@ public class Client
       System.exit(0);
     }
 
-    if (status)
+    if (status && sweep == null)
     {
       boolean standardstatus=false;
       if (props.getProperty(Measurements.MEASUREMENT_TYPE_PROPERTY,"").compareTo("timeseries")==0)
@@ -1096,49 +1130,158 @@ public class Client
       boolean trackJVMStats = props.getProperty(Measurements.MEASUREMENT_TRACK_JVM_PROPERTY, 
           Measurements.MEASUREMENT_TRACK_JVM_PROPERTY_DEFAULT).equals("true");
       statusthread=new StatusThread(completeLatch,clients,label,standardstatus,statusIntervalSeconds,trackJVMStats);
+      statusthread.setConcurrencyController(controller);
       statusthread.start();
     }
 
     Thread terminator = null;
     long st;
     long en;
-    int opsDone;
+    long stcpu=0;
+    long encpu=0;
+    long opsDone;
 
-    try (final TraceScope span = tracer.newScope(CLIENT_WORKLOAD_SPAN)) {
-
-      final Map<Thread, ClientThread> threads = new HashMap<Thread, ClientThread>(threadcount);
-      for (ClientThread client : clients) {
-        threads.put(new Thread(tracer.wrap(client, "ClientThread")), client);
+    if (sweep != null)
+    {
+      try (final TraceScope span = tracer.newScope(CLIENT_WORKLOAD_SPAN)) {
+        st=System.currentTimeMillis();
+        if (maxExecutionTime > 0) {
+          terminator = new TerminatorThread(maxExecutionTime, sweep.getThreads(), workload);
+          terminator.start();
+        }
+        try
+        {
+          opsDone = sweep.run(workload);
+        }
+        catch (InterruptedException e)
+        {
+          opsDone = 0;
+        }
+        catch (DBException e)
+        {
+          System.out.println(e.getMessage());
+          System.exit(-1);
+          return;
+        }
+        en=System.currentTimeMillis();
       }
+    }
+    else
+    {
+      try (final TraceScope span = tracer.newScope(CLIENT_WORKLOAD_SPAN)) {
 
-      st=System.currentTimeMillis();
+        final Map<Thread, ClientThread> threads = new HashMap<Thread, ClientThread>(threadcount);
+        for (ClientThread client : clients) {
+          threads.put(threadfactory.newThread(tracer.wrap(client, "ClientThread")), client);
+        }
 
-      for (Thread t : threads.keySet())
-      {
-        t.start();
-      }
+        CountDownLatch startLatch=null;
+        if (coordinated != null)
+        {
+          // A worker is only ready once all of its threads have initialized
+          // their DBs, which may take long, so they do that before the start.
+          CountDownLatch initLatch=new CountDownLatch(clients.size());
+          startLatch=new CountDownLatch(1);
+          for (ClientThread client : clients)
+          {
+            client.setStartGate(initLatch, startLatch);
+          }
+          for (Thread t : threads.keySet())
+          {
+            t.start();
+          }
+          try
+          {
+            initLatch.await();
+            coordinated.awaitStart();
+          }
+          catch (IOException | InterruptedException e)
+          {
+            System.err.println("Lost the coordinator: " + e.getMessage());
+            System.exit(-1);
+          }
+        }
 
-      if (maxExecutionTime > 0) {
-        terminator = new TerminatorThread(maxExecutionTime, threads.keySet(), workload);
-        terminator.start();
-      }
+        st=System.currentTimeMillis();
+        stcpu=Utils.getProcessCpuTimeNs();
 
-      opsDone = 0;
+        if (coordinated != null)
+        {
+          coordinated.startReporting(clients, Integer.parseInt(props.getProperty("status.interval","10")) * 1000L);
+        }
 
-      for (Map.Entry<Thread, ClientThread> entry : threads.entrySet())
-      {
-        try
+        if (warmup != null)
         {
-          entry.getKey().join();
-          opsDone += entry.getValue().getOpsDone();
+          warmup.start();
         }
-        catch (InterruptedException e)
+
+        if (startLatch != null)
+        {
+          startLatch.countDown();
+        }
+        else
+        {
+          for (Thread t : threads.keySet())
+          {
+            t.start();
+          }
+        }
+
+        if (scheduler != null)
         {
+          scheduler.start();
+        }
+
+        if (maxExecutionTime > 0) {
+          terminator = new TerminatorThread(maxExecutionTime, threads.keySet(), workload);
+          terminator.start();
+        }
+
+        opsDone = 0;
+
+        for (Map.Entry<Thread, ClientThread> entry : threads.entrySet())
+        {
+          try
+          {
+            entry.getKey().join();
+            opsDone += entry.getValue().getOpsDone();
+          }
+          catch (InterruptedException e)
+          {
+          }
         }
+
+        en=System.currentTimeMillis();
+        encpu=Utils.getProcessCpuTimeNs();
+
       }
+    }
 
-      en=System.currentTimeMillis();
+    // Only the steady state after the warmup counts towards the overall numbers.
+    if (warmup != null)
+    {
+      if (warmup.isDone())
+      {
+        st=warmup.getEndTimeMs();
+        stcpu=warmup.getEndCpuNs();
+        opsDone-=warmup.getOps();
+      }
+      else
+      {
+        System.err.println("The run ended during the warmup, all measurements are " + Measurements.WARMUP_PREFIX + ".");
+      }
+    }
 
+    if (coordinated != null)
+    {
+      try
+      {
+        coordinated.finish(opsDone, en - st);
+      }
+      catch (IOException e)
+      {
+        System.err.println("Could not report to the coordinator: " + e.getMessage());
+      }
     }
 
     try
@@ -1149,7 +1292,7 @@ public class Client
           terminator.interrupt();
         }
 
-        if (status)
+        if (statusthread != null)
         {
           // wake up status thread if it's asleep
           statusthread.interrupt();
@@ -1173,7 +1316,7 @@ public class Client
     try
     {
       try (final TraceScope span = tracer.newScope(CLIENT_EXPORT_MEASUREMENTS_SPAN)) {
-        exportMeasurements(props, opsDone, en - st);
+        exportMeasurements(props, opsDone, en - st, encpu - stcpu, sweep, controller);
       }
     } catch (IOException e)
     {
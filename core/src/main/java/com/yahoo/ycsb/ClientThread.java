@@ -0,0 +1,351 @@
+/**
+ * Copyright (c) 2010 - 2016 Yahoo! Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb;
+
+import java.util.Properties;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import com.yahoo.ycsb.measurements.Measurements;
+
+/**
+ * A thread for executing transactions or data inserts to the database.
+ *
+ * @author cooperb
+ *
+ */
+class ClientThread implements Runnable
+{
+  /** Counts down each of the clients completing. */
+  private final CountDownLatch _completeLatch;
+
+  private static boolean _spinSleep;
+  DB _db;
+  boolean _dotransactions;
+  Workload _workload;
+  long _opcount;
+  double _targetOpsPerMs;
+
+  /**
+   * Only written by this thread, so an ordered store (lazySet) publishes each
+   * increment to the status thread without the cost of a full fence.
+   */
+  final AtomicLong _opsdone = new AtomicLong();
+  int _threadid;
+  int _threadcount;
+  Object _workloadstate;
+  Properties _props;
+  long _targetOpsTickNs;
+  OpenLoopScheduler _scheduler;
+  RateLimiter _rateLimiter;
+  Warmup _warmup;
+  ConcurrencyController _controller;
+  int _controllerSlot;
+  CountDownLatch _initLatch;
+  CountDownLatch _startLatch;
+  final Measurements _measurements;
+
+  /**
+   * Constructor.
+   *
+   * @param db the DB implementation to use
+   * @param dotransactions true to do transactions, false to insert data
+   * @param workload the workload to use
+   * @param props the properties defining the experiment
+   * @param opcount the number of operations (transactions or inserts) to do, or 0 for no limit
+   * @param targetperthreadperms target number of operations per thread per ms
+   * @param completeLatch The latch tracking the completion of all clients.
+   */
+  public ClientThread(DB db, boolean dotransactions, Workload workload, Properties props, long opcount, double targetperthreadperms, CountDownLatch completeLatch)
+  {
+    _db=db;
+    _dotransactions=dotransactions;
+    _workload=workload;
+    _opcount=opcount;
+    if(targetperthreadperms > 0){
+      _targetOpsPerMs=targetperthreadperms;
+      _targetOpsTickNs=(long)(1000000/_targetOpsPerMs);
+    }
+    _props=props;
+    _measurements = Measurements.getMeasurements();
+    _spinSleep = Boolean.valueOf(_props.getProperty("spin.sleep", "false"));
+    _completeLatch=completeLatch;
+  }
+
+  public long getOpsDone()
+  {
+    return _opsdone.get();
+  }
+
+  /**
+   * Take operations from the given scheduler's arrivals instead of running
+   * them back to back, for open-loop runs.
+   */
+  public void setOpenLoopScheduler(OpenLoopScheduler scheduler)
+  {
+    _scheduler=scheduler;
+  }
+
+  /**
+   * Take each operation's start time from the given shared rate limiter
+   * instead of this thread's share of the target.
+   */
+  public void setRateLimiter(RateLimiter rateLimiter)
+  {
+    _rateLimiter=rateLimiter;
+  }
+
+  /**
+   * Only run while the given controller counts this thread, the slot-th, among
+   * the active ones, and take operations from it.
+   */
+  public void setConcurrencyController(ConcurrencyController controller, int slot)
+  {
+    _controller=controller;
+    _controllerSlot=slot;
+  }
+
+  /**
+   * Count initLatch down once the DB and workload state are initialized, and
+   * only then wait for startLatch before running any operation.
+   */
+  public void setStartGate(CountDownLatch initLatch, CountDownLatch startLatch)
+  {
+    _initLatch=initLatch;
+    _startLatch=startLatch;
+  }
+
+  /**
+   * Report each completed operation to the given warmup.
+   */
+  public void setWarmup(Warmup warmup)
+  {
+    _warmup=warmup;
+  }
+
+  /**
+   * In open-loop runs, wait for the next scheduled arrival, and with a shared
+   * rate limiter for the next slot, and make it the intended start time of
+   * the operation.
+   *
+   * @return false if there are no more arrivals or slots.
+   */
+  private boolean awaitArrival()
+  {
+    if (_controller != null && !_controller.acquire(_controllerSlot))
+    {
+      return false;
+    }
+    if (_rateLimiter != null)
+    {
+      long slot=_rateLimiter.acquire();
+      if (slot < 0)
+      {
+        return false;
+      }
+      sleepUntil(slot);
+      _measurements.setIntendedStartTimeNs(slot);
+      return true;
+    }
+    if (_scheduler == null)
+    {
+      return true;
+    }
+    long arrival=_scheduler.nextArrival();
+    if (arrival < 0)
+    {
+      return false;
+    }
+    _measurements.setIntendedStartTimeNs(arrival);
+    return true;
+  }
+
+  /**
+   * Initialize the DB and this thread's workload state.
+   *
+   * @return false if either failed.
+   */
+  private boolean initialize()
+  {
+    try
+    {
+      _db.init();
+    }
+    catch (DBException e)
+    {
+      e.printStackTrace();
+      e.printStackTrace(System.out);
+      return false;
+    }
+
+    try
+    {
+      _workloadstate=_workload.initThread(_props,_threadid,_threadcount);
+    }
+    catch (WorkloadException e)
+    {
+      e.printStackTrace();
+      e.printStackTrace(System.out);
+      return false;
+    }
+    return true;
+  }
+
+  @Override
+  public void run()
+  {
+    boolean initialized=initialize();
+    if (_initLatch != null)
+    {
+      _initLatch.countDown();
+    }
+    if (!initialized)
+    {
+      if (_scheduler != null)
+      {
+        // Do not hold back the arrivals for the threads that did initialize.
+        _scheduler.workerReady();
+      }
+      return;
+    }
+    if (_startLatch != null)
+    {
+      try
+      {
+        _startLatch.await();
+      }
+      catch (InterruptedException e)
+      {
+        Thread.currentThread().interrupt();
+      }
+    }
+
+    //NOTE: Switching to using nanoTime and parkNanos for time management here such that the measurements
+    // and the client thread have the same view on time.
+
+    //spread the thread operations out so they don't all hit the DB at the same time
+    // GH issue 4 - throws exception if _target>1 because random.nextInt argument must be >0
+    // and the sleep() doesn't make sense for granularities < 1 ms anyway
+    if (_scheduler != null)
+    {
+      _scheduler.workerReady();
+    }
+
+    if ((_targetOpsPerMs > 0) && (_targetOpsPerMs <= 1.0))
+    {
+      long randomMinorDelay = Utils.random().nextInt((int) _targetOpsTickNs);
+      sleepUntil(System.nanoTime() + randomMinorDelay);
+    }
+    try
+    {
+      if (_dotransactions)
+      {
+        long startTimeNanos = System.nanoTime();
+
+        while (((_opcount == 0) || (_opsdone.get() < _opcount)) && !_workload.isStopRequested())
+        {
+
+          if (!awaitArrival() || !_workload.doTransaction(_db,_workloadstate))
+          {
+            break;
+          }
+
+          _opsdone.lazySet(_opsdone.get() + 1);
+          if (_warmup != null)
+          {
+            _warmup.opDone();
+          }
+
+          throttleNanos(startTimeNanos);
+        }
+      }
+      else
+      {
+        long startTimeNanos = System.nanoTime();
+
+        while (((_opcount == 0) || (_opsdone.get() < _opcount)) && !_workload.isStopRequested())
+        {
+
+          if (!awaitArrival() || !_workload.doInsert(_db,_workloadstate))
+          {
+            break;
+          }
+
+          _opsdone.lazySet(_opsdone.get() + 1);
+          if (_warmup != null)
+          {
+            _warmup.opDone();
+          }
+
+          throttleNanos(startTimeNanos);
+        }
+      }
+    }
+    catch (Exception e)
+    {
+      e.printStackTrace();
+      e.printStackTrace(System.out);
+      System.exit(0);
+    }
+
+    try
+    {
+      _measurements.setIntendedStartTimeNs(0);
+      _db.cleanup();
+    }
+    catch (DBException e)
+    {
+      e.printStackTrace();
+      e.printStackTrace(System.out);
+      return;
+    }
+    finally
+    {
+      _completeLatch.countDown();
+    }
+  }
+
+  static void sleepUntil(long deadline) {
+    long now = System.nanoTime();
+    while((now = System.nanoTime()) < deadline) {
+      if (!_spinSleep) {
+        LockSupport.parkNanos(deadline - now);
+      }
+    }
+  }
+  private void throttleNanos(long startTimeNanos) {
+    //throttle the operations
+    if (_targetOpsPerMs > 0)
+    {
+      // delay until next tick
+      long deadline = startTimeNanos + _opsdone.get()*_targetOpsTickNs;
+      sleepUntil(deadline);
+      _measurements.setIntendedStartTimeNs(deadline);
+    }
+  }
+  
+  /**
+   * the total amount of work this thread is still expected to do
+   */
+  public long getOpsTodo()
+  {
+    long todo = _opcount - _opsdone.get();
+    return todo < 0 ? 0 : todo;
+  }
+}
@@ -0,0 +1,90 @@
+/**
+ * Copyright (c) 2016 YCSB contributors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb;
+
+import java.lang.reflect.Method;
+import java.util.Properties;
+
+/**
+ * Creates the threads that run the client threads, either one platform
+ * thread each (default) or, with threadmode=virtual, one virtual thread each.
+ *
+ * Virtual threads let a run simulate many thousands of clients blocked on a
+ * slow store without an OS thread and stack per client. They need a Java 21
+ * runtime; YCSB is built for older runtimes, so they are created through
+ * reflection, and platform threads are used when the runtime has none.
+ * Throttling parks and TerminatorThread's interrupts and joins work on
+ * either kind. A binding that blocks inside synchronized code pins the
+ * carrier thread, which limits what virtual threads gain for it.
+ */
+public class ClientThreadFactory {
+  /**
+   * The kind of thread to run client threads on: "platform" (default) or
+   * "virtual".
+   */
+  public static final String THREAD_MODE_PROPERTY = "threadmode";
+
+  /**
+   * The default thread mode.
+   */
+  public static final String THREAD_MODE_PROPERTY_DEFAULT = "platform";
+
+  private final Object virtualBuilder;
+  private final Method unstarted;
+
+  public ClientThreadFactory(Properties props) {
+    String mode = props.getProperty(THREAD_MODE_PROPERTY, THREAD_MODE_PROPERTY_DEFAULT);
+    Object builder = null;
+    Method method = null;
+    if (mode.equals("virtual")) {
+      try {
+        builder = Thread.class.getMethod("ofVirtual").invoke(null);
+        method = Class.forName("java.lang.Thread$Builder").getMethod("unstarted", Runnable.class);
+      } catch (ReflectiveOperationException e) {
+        System.err.println("This runtime has no virtual threads, using platform threads.");
+        builder = null;
+        method = null;
+      }
+    } else if (!mode.equals("platform")) {
+      throw new IllegalArgumentException("unknown " + THREAD_MODE_PROPERTY + "=" + mode);
+    }
+    this.virtualBuilder = builder;
+    this.unstarted = method;
+  }
+
+  /**
+   * @return true if client threads run on virtual threads.
+   */
+  public boolean isVirtual() {
+    return virtualBuilder != null;
+  }
+
+  /**
+   * @return a new, unstarted thread that runs runnable.
+   */
+  public Thread newThread(Runnable runnable) {
+    if (virtualBuilder != null) {
+      try {
+        return (Thread) unstarted.invoke(virtualBuilder, runnable);
+      } catch (ReflectiveOperationException e) {
+        throw new IllegalStateException("Could not create a virtual thread", e);
+      }
+    }
+    return new Thread(runnable);
+  }
+}
@@ -0,0 +1,274 @@
+/**
+ * Copyright (c) 2016 YCSB contributors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb;
+
+import java.io.IOException;
+import java.text.DecimalFormat;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.HdrHistogram.Histogram;
+
+import com.yahoo.ycsb.measurements.Measurements;
+import com.yahoo.ycsb.measurements.OneMeasurementHdrHistogram;
+import com.yahoo.ycsb.measurements.exporter.MeasurementsExporter;
+
+/**
+ * Finds the concurrency at which a latency SLO is just met by adjusting the
+ * number of active client threads during the run, instead of trying
+ * threadcounts one run at a time.
+ *
+ * Of the threadcount client threads, only the first few are active; the
+ * others wait. At the end of every status interval, the controller looks at
+ * the interval's latency percentile over all DB operations, as collected by
+ * the status thread. If it is within controller.slo, one more thread
+ * becomes active (additive increase); if not, the number of active threads
+ * is cut by controller.decrease (multiplicative decrease). With async.depth,
+ * each active thread keeps that many operations in flight.
+ *
+ * Every interval is kept as a trace, exported as CONTROLLER-n rows, along
+ * with the highest interval throughput within the SLO and the concurrency
+ * it was reached at.
+ */
+public class ConcurrencyController {
+  /**
+   * The latency SLO, in microseconds, at the percentile given by
+   * controller.percentile. 0 (default) disables the controller.
+   */
+  public static final String SLO_PROPERTY = "controller.slo";
+
+  /**
+   * The default SLO, which disables the controller.
+   */
+  public static final String SLO_PROPERTY_DEFAULT = "0";
+
+  /**
+   * The latency percentile the SLO applies to.
+   */
+  public static final String PERCENTILE_PROPERTY = "controller.percentile";
+
+  /**
+   * The default percentile.
+   */
+  public static final String PERCENTILE_PROPERTY_DEFAULT = "99";
+
+  /**
+   * The number of active threads to start with.
+   */
+  public static final String INITIAL_PROPERTY = "controller.initial";
+
+  /**
+   * The default initial concurrency.
+   */
+  public static final String INITIAL_PROPERTY_DEFAULT = "1";
+
+  /**
+   * The number of threads to add after an interval within the SLO.
+   */
+  public static final String INCREASE_PROPERTY = "controller.increase";
+
+  /**
+   * The default increase.
+   */
+  public static final String INCREASE_PROPERTY_DEFAULT = "1";
+
+  /**
+   * The factor to scale the number of threads by after an interval that
+   * missed the SLO.
+   */
+  public static final String DECREASE_PROPERTY = "controller.decrease";
+
+  /**
+   * The default decrease.
+   */
+  public static final String DECREASE_PROPERTY_DEFAULT = "0.5";
+
+  /** How often waiting threads check whether the run was stopped. */
+  private static final long WAIT_MS = 100;
+
+  private final long sloUs;
+  /** The nanoseconds in one unit of the measured latencies. */
+  private final long nanosPerUnit;
+  private final double percentile;
+  private final String percentileName;
+  private final int increase;
+  private final double decrease;
+  private final int maxThreads;
+  private final long opcount;
+  private final Workload workload;
+  private final AtomicLong issued = new AtomicLong();
+  private final List<Interval> trace = new ArrayList<Interval>();
+  private volatile int active;
+  private long startMs;
+  private long lastMs;
+  private long lastOps;
+
+  /**
+   * @return true if props ask for the controller.
+   */
+  public static boolean isEnabled(Properties props) {
+    return Long.parseLong(props.getProperty(SLO_PROPERTY, SLO_PROPERTY_DEFAULT)) > 0;
+  }
+
+  /**
+   * @param props the properties configuring the controller.
+   * @param maxThreads the number of client threads, the most that can be
+   *        active.
+   * @param opcount the total number of operations to hand out, or 0 for no
+   *        limit.
+   * @param workload the workload, to notice when the run is stopped.
+   */
+  public ConcurrencyController(Properties props, int maxThreads, long opcount, Workload workload) {
+    if (!props.getProperty(Measurements.MEASUREMENT_TYPE_PROPERTY, "hdrhistogram").equals("hdrhistogram")) {
+      throw new IllegalArgumentException("The concurrency controller needs "
+          + Measurements.MEASUREMENT_TYPE_PROPERTY + "=hdrhistogram");
+    }
+    this.sloUs = Long.parseLong(props.getProperty(SLO_PROPERTY, SLO_PROPERTY_DEFAULT));
+    this.nanosPerUnit = OneMeasurementHdrHistogram.nanosPerUnit(props);
+    this.percentile = Double.parseDouble(props.getProperty(PERCENTILE_PROPERTY, PERCENTILE_PROPERTY_DEFAULT));
+    this.percentileName = new DecimalFormat("#.###").format(percentile);
+    this.increase = Integer.parseInt(props.getProperty(INCREASE_PROPERTY, INCREASE_PROPERTY_DEFAULT));
+    this.decrease = Double.parseDouble(props.getProperty(DECREASE_PROPERTY, DECREASE_PROPERTY_DEFAULT));
+    if (increase < 1 || decrease <= 0 || decrease >= 1) {
+      throw new IllegalArgumentException(INCREASE_PROPERTY + " must be at least 1 and "
+          + DECREASE_PROPERTY + " between 0 and 1");
+    }
+    this.maxThreads = maxThreads;
+    this.opcount = opcount;
+    this.workload = workload;
+    this.active = Math.max(1, Math.min(maxThreads,
+        Integer.parseInt(props.getProperty(INITIAL_PROPERTY, INITIAL_PROPERTY_DEFAULT))));
+  }
+
+  /**
+   * Wait until client thread threadid is among the active ones, and take
+   * an operation.
+   *
+   * @return false once opcount operations were handed out or the run was
+   *         stopped.
+   */
+  public boolean acquire(int threadid) {
+    if (threadid >= active) {
+      synchronized (this) {
+        while (threadid >= active && !workload.isStopRequested()) {
+          try {
+            wait(WAIT_MS);
+          } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+          }
+        }
+      }
+    }
+    return !workload.isStopRequested() && (opcount == 0 || issued.getAndIncrement() < opcount);
+  }
+
+  /**
+   * @return the number of active client threads.
+   */
+  public int getConcurrency() {
+    return active;
+  }
+
+  /**
+   * Adjust the concurrency to the latency of the status interval that just
+   * ended. Called by the status thread.
+   *
+   * @param totalOps the number of operations done so far.
+   * @param nowMs the end of the interval.
+   */
+  public void update(long totalOps, long nowMs) {
+    update(Measurements.getMeasurements().getLastIntervalHistogram(), totalOps, nowMs);
+  }
+
+  synchronized void update(Histogram interval, long totalOps, long nowMs) {
+    if (startMs == 0) {
+      // The status thread's first report starts the first interval.
+      startMs = nowMs;
+      lastMs = nowMs;
+      lastOps = totalOps;
+      return;
+    }
+    long ops = totalOps - lastOps;
+    long elapsedMs = nowMs - lastMs;
+    lastOps = totalOps;
+    lastMs = nowMs;
+    if (interval == null || interval.getTotalCount() == 0 || elapsedMs <= 0) {
+      return;
+    }
+
+    long latencyUs = interval.getValueAtPercentile(percentile) * nanosPerUnit / 1000;
+    boolean withinSlo = latencyUs <= sloUs;
+    int concurrency = active;
+    trace.add(new Interval((nowMs - startMs) / 1000.0, concurrency, 1000.0 * ops / elapsedMs,
+        latencyUs, withinSlo));
+
+    int next = withinSlo
+        ? Math.min(maxThreads, concurrency + increase)
+        : Math.max(1, (int) (concurrency * decrease));
+    if (next != concurrency) {
+      System.err.println("Controller: " + percentileName + "th percentile " + latencyUs + " us, concurrency "
+          + concurrency + " -> " + next);
+      active = next;
+      notifyAll();
+    }
+  }
+
+  /**
+   * Export the control trace and the highest throughput within the SLO.
+   */
+  public synchronized void exportMeasurements(MeasurementsExporter exporter) throws IOException {
+    double best = 0;
+    int bestConcurrency = 0;
+    for (int i = 0; i < trace.size(); i++) {
+      Interval interval = trace.get(i);
+      String name = "CONTROLLER-" + i;
+      exporter.write(name, "Time(s)", interval.timeS);
+      exporter.write(name, "Concurrency", interval.concurrency);
+      exporter.write(name, "Throughput(ops/sec)", interval.throughput);
+      exporter.write(name, percentileName + "thPercentileLatency(us)", interval.latencyUs);
+      if (interval.withinSlo && interval.throughput > best) {
+        best = interval.throughput;
+        bestConcurrency = interval.concurrency;
+      }
+    }
+    exporter.write("CONTROLLER", "MaxThroughputWithinSLO(ops/sec)", best);
+    exporter.write("CONTROLLER", "ConcurrencyWithinSLO", bestConcurrency);
+  }
+
+  /**
+   * One status interval of the control trace.
+   */
+  private static final class Interval {
+    private final double timeS;
+    private final int concurrency;
+    private final double throughput;
+    private final long latencyUs;
+    private final boolean withinSlo;
+
+    Interval(double timeS, int concurrency, double throughput, long latencyUs, boolean withinSlo) {
+      this.timeS = timeS;
+      this.concurrency = concurrency;
+      this.throughput = throughput;
+      this.latencyUs = latencyUs;
+      this.withinSlo = withinSlo;
+    }
+  }
+}
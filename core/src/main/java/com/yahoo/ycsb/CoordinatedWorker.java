@@ -0,0 +1,188 @@
+/**
+ * Copyright (c) 2016 YCSB contributors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+import org.HdrHistogram.Histogram;
+
+import com.yahoo.ycsb.measurements.Measurements;
+
+/**
+ * The worker side of a {@link Coordinator} run: takes its share of the work
+ * from the coordinator, waits for the common start, and sends its
+ * measurements back as it goes.
+ *
+ * The worker takes the interval histograms of its measurements itself, so
+ * it runs without a status thread; the coordinator reports the progress of
+ * all workers instead.
+ */
+public class CoordinatedWorker {
+  private final Socket socket;
+  private final DataInputStream in;
+  private final DataOutputStream out;
+  private final int index;
+  private final Measurements measurements;
+  private Thread reporter;
+
+  /**
+   * @return true if props make the client a worker of a coordinator.
+   */
+  public static boolean isWorker(Properties props) {
+    return props.getProperty(Coordinator.ADDRESS_PROPERTY) != null;
+  }
+
+  /**
+   * Connect to the coordinator and apply the share of the work it assigns
+   * to props.
+   */
+  public CoordinatedWorker(Properties props) throws IOException {
+    this(props, null);
+  }
+
+  /**
+   * Connect to the coordinator, reporting the given measurements, or the
+   * process-wide ones if null, which are only set up after the partition is
+   * applied to props.
+   */
+  CoordinatedWorker(Properties props, Measurements measurements) throws IOException {
+    this.measurements = measurements;
+    String address = props.getProperty(Coordinator.ADDRESS_PROPERTY);
+    int colon = address.lastIndexOf(':');
+    if (colon < 0) {
+      throw new IOException(Coordinator.ADDRESS_PROPERTY + " must be host:port, not " + address);
+    }
+    socket = new Socket(address.substring(0, colon), Integer.parseInt(address.substring(colon + 1)));
+    socket.setTcpNoDelay(true);
+    in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+    out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+
+    index = in.readInt();
+    int workers = in.readInt();
+    int overrides = in.readInt();
+    for (int i = 0; i < overrides; i++) {
+      props.setProperty(in.readUTF(), in.readUTF());
+    }
+    System.err.println("Worker " + index + " of " + workers + " coordinated by " + address + ".");
+  }
+
+  /**
+   * Tell the coordinator this worker is ready and wait until all are. Call
+   * once the client threads have initialized their DBs.
+   */
+  public void awaitStart() throws IOException {
+    out.writeByte(Coordinator.READY);
+    out.flush();
+    if (in.readByte() != Coordinator.GO) {
+      throw new IOException("Unexpected message from the coordinator");
+    }
+  }
+
+  /**
+   * Send the progress of clients and their measurements to the coordinator
+   * every intervalMs until {@link #finish} is called.
+   */
+  public void startReporting(final List<ClientThread> clients, final long intervalMs) {
+    reporter = new Thread("CoordinatedWorker-" + index) {
+      @Override
+      public void run() {
+        try {
+          while (true) {
+            Thread.sleep(intervalMs);
+            long ops = 0;
+            for (ClientThread client : clients) {
+              ops += client.getOpsDone();
+            }
+            sendInterval(ops);
+          }
+        } catch (InterruptedException e) {
+          // The run is over.
+        } catch (IOException e) {
+          System.err.println("Lost the coordinator: " + e.getMessage());
+        }
+      }
+    };
+    reporter.setDaemon(true);
+    reporter.start();
+  }
+
+  /**
+   * Send the last measurements, the number of operations done and the run
+   * time to the coordinator, and disconnect.
+   */
+  public void finish(long opsDone, long runtimeMs) throws IOException {
+    if (reporter != null) {
+      reporter.interrupt();
+      try {
+        reporter.join();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+    try {
+      sendInterval(opsDone);
+
+      out.writeByte(Coordinator.DONE);
+      out.writeLong(opsDone);
+      out.writeLong(runtimeMs);
+      Map<String, Map<Status, Long>> counts = measurements().getStatusCounts();
+      out.writeInt(counts.size());
+      for (Map.Entry<String, Map<Status, Long>> measurement : counts.entrySet()) {
+        out.writeUTF(measurement.getKey());
+        out.writeInt(measurement.getValue().size());
+        for (Map.Entry<Status, Long> count : measurement.getValue().entrySet()) {
+          out.writeUTF(count.getKey().getName());
+          out.writeUTF(count.getKey().getDescription());
+          out.writeLong(count.getValue());
+        }
+      }
+      out.flush();
+    } finally {
+      socket.close();
+    }
+  }
+
+  private Measurements measurements() {
+    return measurements != null ? measurements : Measurements.getMeasurements();
+  }
+
+  private void sendInterval(long ops) throws IOException {
+    Map<String, Histogram> histograms = measurements().getIntervalHistograms();
+    out.writeByte(Coordinator.INTERVAL);
+    out.writeLong(ops);
+    out.writeInt(histograms.size());
+    for (Map.Entry<String, Histogram> entry : histograms.entrySet()) {
+      Histogram histogram = entry.getValue();
+      ByteBuffer buffer = ByteBuffer.allocate(histogram.getNeededByteBufferCapacity());
+      int length = histogram.encodeIntoCompressedByteBuffer(buffer);
+      out.writeUTF(entry.getKey());
+      out.writeInt(length);
+      out.write(buffer.array(), 0, length);
+    }
+    out.flush();
+  }
+}
@@ -0,0 +1,441 @@
+/**
+ * Copyright (c) 2016 YCSB contributors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.text.DecimalFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+import java.util.zip.DataFormatException;
+
+import org.HdrHistogram.Histogram;
+
+import com.yahoo.ycsb.measurements.Measurements;
+import com.yahoo.ycsb.measurements.exporter.MeasurementsExporter;
+import com.yahoo.ycsb.workloads.CoreWorkload;
+
+/**
+ * Runs one phase of a workload on several worker processes and reports the
+ * combined results, instead of starting a client per server and merging their
+ * output by hand.
+ *
+ * The coordinator listens on coordinator.port and, unless coordinator.spawn
+ * is false, starts coordinator.workers local worker JVMs with its own command
+ * line. Workers started by hand, on this or other hosts, join by running the
+ * same command line with coordinator.address=host:port and
+ * coordinator.workers=0. Each worker is given its share of the records to
+ * load (insertstart/insertcount), or of operationcount and target in the
+ * transaction phase, and each runs threadcount threads. Once all workers have
+ * initialized, they are started together.
+ *
+ * Workers send the HdrHistogram of each measurement every status.interval
+ * seconds, and their operation and return code counts at the end. The
+ * coordinator adds the histograms up, so that the reported percentiles are
+ * those of all operations, not an average of the workers' percentiles.
+ */
+public class Coordinator {
+  /**
+   * The number of worker processes to coordinate. 0 (default) runs a single
+   * client as usual.
+   */
+  public static final String WORKERS_PROPERTY = "coordinator.workers";
+
+  /**
+   * The default number of workers.
+   */
+  public static final String WORKERS_PROPERTY_DEFAULT = "0";
+
+  /**
+   * The port the coordinator listens on for workers. 0 (default) picks a free
+   * port, which only suits spawned workers.
+   */
+  public static final String PORT_PROPERTY = "coordinator.port";
+
+  /**
+   * The default port.
+   */
+  public static final String PORT_PROPERTY_DEFAULT = "0";
+
+  /**
+   * Whether the coordinator starts the workers as local processes (default)
+   * or waits for workers started by hand.
+   */
+  public static final String SPAWN_PROPERTY = "coordinator.spawn";
+
+  /**
+   * The default, starting local workers.
+   */
+  public static final String SPAWN_PROPERTY_DEFAULT = "true";
+
+  /**
+   * The directory the output of spawned workers is written to, as
+   * worker-n.log. Defaults to the temporary directory.
+   */
+  public static final String LOG_DIR_PROPERTY = "coordinator.logdir";
+
+  /**
+   * The host:port of the coordinator, which makes the client a worker.
+   */
+  public static final String ADDRESS_PROPERTY = "coordinator.address";
+
+  static final byte READY = 'R';
+  static final byte GO = 'G';
+  static final byte INTERVAL = 'I';
+  static final byte DONE = 'D';
+
+  /** How long to wait for spawned workers to connect. */
+  private static final int SPAWN_TIMEOUT_MS = 120000;
+
+  private final Properties props;
+  private final String[] args;
+  private final int workers;
+  private final Measurements measurements;
+  private final Map<String, Histogram> interval = new TreeMap<String, Histogram>();
+
+  /**
+   * @return true if props ask for a coordinated run.
+   */
+  public static boolean isCoordinator(Properties props) {
+    return Integer.parseInt(props.getProperty(WORKERS_PROPERTY, WORKERS_PROPERTY_DEFAULT)) > 0;
+  }
+
+  /**
+   * @param props the properties of the run, shared with the workers.
+   * @param args the command line, which spawned workers are started with.
+   */
+  public Coordinator(Properties props, String[] args) {
+    if (!props.getProperty(Measurements.MEASUREMENT_TYPE_PROPERTY, "hdrhistogram").equals("hdrhistogram")) {
+      throw new IllegalArgumentException("A coordinated run needs "
+          + Measurements.MEASUREMENT_TYPE_PROPERTY + "=hdrhistogram");
+    }
+    if (SaturationSweep.isSweep(props) || ConcurrencyController.isEnabled(props)) {
+      throw new IllegalArgumentException(
+          "A sweep or concurrency controller cannot be coordinated over several workers.");
+    }
+    this.props = props;
+    this.args = args;
+    this.workers = Integer.parseInt(props.getProperty(WORKERS_PROPERTY));
+    Measurements.setProperties(props);
+    this.measurements = Measurements.getMeasurements();
+  }
+
+  /**
+   * The properties worker index of workers overrides: its share of the
+   * records to load, or of the operations and target of the transaction
+   * phase.
+   */
+  static Properties partition(Properties props, int index, int workers) {
+    Properties share = new Properties();
+    if (Boolean.parseBoolean(props.getProperty(Client.DO_TRANSACTIONS_PROPERTY, "true"))) {
+      long opcount = Long.parseLong(props.getProperty(Client.OPERATION_COUNT_PROPERTY, "0"));
+      share.setProperty(Client.OPERATION_COUNT_PROPERTY, String.valueOf(split(opcount, index, workers)));
+      long target = Long.parseLong(props.getProperty(Client.TARGET_PROPERTY, "0"));
+      if (target > 0) {
+        share.setProperty(Client.TARGET_PROPERTY, String.valueOf(Math.max(1, split(target, index, workers))));
+      }
+      // Each worker inserts into a slice of its own, large enough for every
+      // operation to insert a full batch.
+      long recordcount = Long.parseLong(props.getProperty(Client.RECORD_COUNT_PROPERTY, Client.DEFAULT_RECORD_COUNT));
+      if (recordcount == 0) {
+        recordcount = Integer.MAX_VALUE;
+      }
+      long start = Long.parseLong(props.getProperty(Workload.TRANSACTION_INSERT_START_PROPERTY,
+          String.valueOf(recordcount)));
+      long batch = Math.max(1, Long.parseLong(props.getProperty(CoreWorkload.BATCH_SIZE_PROPERTY,
+          CoreWorkload.BATCH_SIZE_PROPERTY_DEFAULT)));
+      long slice = opcount > 0 ? split(opcount, 0, workers) * batch : (Long.MAX_VALUE - start) / workers;
+      share.setProperty(Workload.TRANSACTION_INSERT_START_PROPERTY, String.valueOf(start + index * slice));
+    } else {
+      long start = Long.parseLong(props.getProperty(Workload.INSERT_START_PROPERTY,
+          Workload.INSERT_START_PROPERTY_DEFAULT));
+      long count = props.containsKey(Client.INSERT_COUNT_PROPERTY)
+          ? Long.parseLong(props.getProperty(Client.INSERT_COUNT_PROPERTY))
+          : Long.parseLong(props.getProperty(Client.RECORD_COUNT_PROPERTY, Client.DEFAULT_RECORD_COUNT)) - start;
+      for (int i = 0; i < index; i++) {
+        start += split(count, i, workers);
+      }
+      share.setProperty(Workload.INSERT_START_PROPERTY, String.valueOf(start));
+      share.setProperty(Client.INSERT_COUNT_PROPERTY, String.valueOf(split(count, index, workers)));
+    }
+    return share;
+  }
+
+  private static long split(long total, int index, int workers) {
+    return total / workers + (index < total % workers ? 1 : 0);
+  }
+
+  /**
+   * A connected worker.
+   */
+  private final class Connection extends Thread {
+    private final int index;
+    private final Socket socket;
+    private final DataInputStream in;
+    private final DataOutputStream out;
+    private volatile long reportedOps;
+    private long ops;
+    private long runtimeMs;
+    private volatile Exception failure;
+
+    Connection(int index, Socket socket) throws IOException {
+      this.index = index;
+      this.socket = socket;
+      this.in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+      this.out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+    }
+
+    void sendPartition() throws IOException {
+      Properties share = partition(props, index, workers);
+      out.writeInt(index);
+      out.writeInt(workers);
+      out.writeInt(share.size());
+      for (String name : share.stringPropertyNames()) {
+        out.writeUTF(name);
+        out.writeUTF(share.getProperty(name));
+      }
+      out.flush();
+    }
+
+    void awaitReady() throws IOException {
+      if (in.readByte() != READY) {
+        throw new IOException("Worker " + index + " did not report ready");
+      }
+    }
+
+    void go() throws IOException {
+      out.writeByte(GO);
+      out.flush();
+    }
+
+    @Override
+    public void run() {
+      try {
+        while (true) {
+          byte type = in.readByte();
+          if (type == INTERVAL) {
+            reportedOps = in.readLong();
+            readHistograms();
+          } else if (type == DONE) {
+            ops = in.readLong();
+            runtimeMs = in.readLong();
+            readStatusCounts();
+            break;
+          } else {
+            throw new IOException("Unexpected message " + type + " from worker " + index);
+          }
+        }
+      } catch (IOException | DataFormatException | RuntimeException e) {
+        failure = e;
+      } finally {
+        try {
+          socket.close();
+        } catch (IOException e) {
+          // Nothing left to read from it anyway.
+        }
+      }
+    }
+
+    private void readHistograms() throws IOException, DataFormatException {
+      int count = in.readInt();
+      for (int i = 0; i < count; i++) {
+        String name = in.readUTF();
+        byte[] encoded = new byte[in.readInt()];
+        in.readFully(encoded);
+        Histogram histogram = Histogram.decodeFromCompressedByteBuffer(ByteBuffer.wrap(encoded), 0);
+        // Values of later intervals, and other workers, may not fit its range.
+        histogram.setAutoResize(true);
+        measurements.merge(name, histogram);
+        synchronized (interval) {
+          Histogram current = interval.get(name);
+          if (current == null) {
+            interval.put(name, histogram);
+          } else {
+            current.add(histogram);
+          }
+        }
+      }
+    }
+
+    private void readStatusCounts() throws IOException {
+      int measurementCount = in.readInt();
+      for (int i = 0; i < measurementCount; i++) {
+        String name = in.readUTF();
+        int statusCount = in.readInt();
+        for (int j = 0; j < statusCount; j++) {
+          Status status = new Status(in.readUTF(), in.readUTF());
+          measurements.mergeStatusCount(name, status, in.readLong());
+        }
+      }
+    }
+  }
+
+  /**
+   * Run the phase on all workers and export the combined measurements.
+   *
+   * @param status whether to report the combined progress every
+   *        status.interval seconds.
+   */
+  public void run(boolean status) throws IOException, InterruptedException {
+    List<Process> processes = new ArrayList<Process>();
+    try {
+      run(status, processes);
+    } finally {
+      // Spawned workers are left running if a worker or the coordinator
+      // failed; those that finished are gone already.
+      for (Process process : processes) {
+        process.destroy();
+      }
+    }
+  }
+
+  /**
+   * Run the phase, adding the spawned workers to processes.
+   */
+  private void run(boolean status, List<Process> processes) throws IOException, InterruptedException {
+    List<Connection> connections = new ArrayList<Connection>(workers);
+    boolean spawn = Boolean.parseBoolean(props.getProperty(SPAWN_PROPERTY, SPAWN_PROPERTY_DEFAULT));
+
+    try (ServerSocket server = new ServerSocket(Integer.parseInt(
+        props.getProperty(PORT_PROPERTY, PORT_PROPERTY_DEFAULT)))) {
+      System.err.println("Coordinating " + workers + " workers on port " + server.getLocalPort() + ".");
+      if (spawn) {
+        server.setSoTimeout(SPAWN_TIMEOUT_MS);
+        for (int i = 0; i < workers; i++) {
+          processes.add(spawn(i, server.getLocalPort()));
+        }
+      }
+      for (int i = 0; i < workers; i++) {
+        Connection connection = new Connection(i, server.accept());
+        connection.sendPartition();
+        connections.add(connection);
+      }
+    }
+
+    for (Connection connection : connections) {
+      connection.awaitReady();
+    }
+    long st = System.currentTimeMillis();
+    for (Connection connection : connections) {
+      connection.go();
+      connection.start();
+    }
+    System.err.println("Started all workers.");
+
+    long intervalMs = Integer.parseInt(props.getProperty("status.interval", "10")) * 1000L;
+    long lastOps = 0;
+    long lastMs = st;
+    for (Connection connection : connections) {
+      while (connection.isAlive()) {
+        connection.join(intervalMs);
+        long now = System.currentTimeMillis();
+        if (status && now - lastMs >= intervalMs) {
+          lastOps = reportStatus(connections, st, lastMs, now, lastOps);
+          lastMs = now;
+        }
+      }
+    }
+
+    long totalOps = 0;
+    long runtimeMs = 0;
+    for (Connection connection : connections) {
+      if (connection.failure != null) {
+        throw new IOException("Worker " + connection.index + " failed", connection.failure);
+      }
+      totalOps += connection.ops;
+      runtimeMs = Math.max(runtimeMs, connection.runtimeMs);
+    }
+    for (Process process : processes) {
+      process.waitFor();
+    }
+
+    try (MeasurementsExporter exporter = Client.createExporter(props)) {
+      exporter.write("OVERALL", "RunTime(ms)", runtimeMs);
+      exporter.write("OVERALL", "Throughput(ops/sec)", 1000.0 * totalOps / runtimeMs);
+      for (Connection connection : connections) {
+        String worker = "WORKER-" + connection.index;
+        exporter.write(worker, "Operations", connection.ops);
+        exporter.write(worker, "Throughput(ops/sec)", 1000.0 * connection.ops / connection.runtimeMs);
+      }
+      measurements.exportMeasurements(exporter);
+    }
+  }
+
+  /**
+   * Start worker index as a JVM running this client, with its output going
+   * to worker-index.log.
+   */
+  private Process spawn(int index, int port) throws IOException {
+    List<String> command = new ArrayList<String>();
+    command.add(new File(new File(System.getProperty("java.home"), "bin"), "java").getPath());
+    command.add("-cp");
+    command.add(System.getProperty("java.class.path"));
+    command.add(Client.class.getName());
+    command.addAll(Arrays.asList(args));
+    command.add("-p");
+    command.add(WORKERS_PROPERTY + "=0");
+    command.add("-p");
+    command.add(ADDRESS_PROPERTY + "=127.0.0.1:" + port);
+
+    File log = new File(props.getProperty(LOG_DIR_PROPERTY, System.getProperty("java.io.tmpdir")),
+        "worker-" + index + ".log");
+    System.err.println("Starting worker " + index + ", logging to " + log + ".");
+    return new ProcessBuilder(command)
+        .redirectErrorStream(true)
+        .redirectOutput(ProcessBuilder.Redirect.to(log))
+        .start();
+  }
+
+  /**
+   * Print the combined progress since the last report.
+   *
+   * @return the total number of operations done.
+   */
+  private long reportStatus(List<Connection> connections, long st, long lastMs, long now, long lastOps) {
+    long totalOps = 0;
+    for (Connection connection : connections) {
+      totalOps += connection.reportedOps;
+    }
+    DecimalFormat d = new DecimalFormat("#.##");
+    StringBuilder msg = new StringBuilder().append((now - st) / 1000).append(" sec: ");
+    msg.append(totalOps).append(" operations; ");
+    msg.append(d.format(1000.0 * (totalOps - lastOps) / (now - lastMs))).append(" current ops/sec; ");
+    synchronized (interval) {
+      for (Map.Entry<String, Histogram> entry : interval.entrySet()) {
+        Histogram histogram = entry.getValue();
+        msg.append("[").append(entry.getKey()).append(": Count=").append(histogram.getTotalCount())
+            .append(", Avg=").append(d.format(histogram.getMean()))
+            .append(", 99=").append(histogram.getValueAtPercentile(99)).append("] ");
+      }
+      interval.clear();
+    }
+    System.err.println(msg);
+    return totalOps;
+  }
+}
@@ -18,6 +18,8 @@
 package com.yahoo.ycsb;
 
 import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Properties;
 import java.util.Set;
 import java.util.Vector;
@@ -134,4 +136,144 @@ public abstract class DB
 	 * @return The result of the operation.
 	 */
 	public abstract Status delete(String table, String key);
+
+	/**
+	 * Start reading a record and call back with the result once it is in. The result HashMap must not be used
+	 * until then. Bindings whose client library is asynchronous should override this; by default the read is
+	 * done synchronously and the callback is called before returning.
+	 *
+	 * @param callback Called once with the result of the operation.
+	 * @see #read(String, String, Set, HashMap)
+	 */
+	public void readAsync(String table, String key, Set<String> fields, HashMap<String,ByteIterator> result, StatusCallback callback)
+	{
+		callback.completed(read(table, key, fields, result));
+	}
+
+	/**
+	 * Start a range scan and call back with the result once it is in. Synchronous by default.
+	 *
+	 * @param callback Called once with the result of the operation.
+	 * @see #scan(String, String, int, Set, Vector)
+	 */
+	public void scanAsync(String table, String startkey, int recordcount, Set<String> fields, Vector<HashMap<String,ByteIterator>> result, StatusCallback callback)
+	{
+		callback.completed(scan(table, startkey, recordcount, fields, result));
+	}
+
+	/**
+	 * Start updating a record and call back with the result once it is done. Synchronous by default.
+	 *
+	 * @param callback Called once with the result of the operation.
+	 * @see #update(String, String, HashMap)
+	 */
+	public void updateAsync(String table, String key, HashMap<String,ByteIterator> values, StatusCallback callback)
+	{
+		callback.completed(update(table, key, values));
+	}
+
+	/**
+	 * Start inserting a record and call back with the result once it is done. Synchronous by default.
+	 *
+	 * @param callback Called once with the result of the operation.
+	 * @see #insert(String, String, HashMap)
+	 */
+	public void insertAsync(String table, String key, HashMap<String,ByteIterator> values, StatusCallback callback)
+	{
+		callback.completed(insert(table, key, values));
+	}
+
+	/**
+	 * Start deleting a record and call back with the result once it is done. Synchronous by default.
+	 *
+	 * @param callback Called once with the result of the operation.
+	 * @see #delete(String, String)
+	 */
+	public void deleteAsync(String table, String key, StatusCallback callback)
+	{
+		callback.completed(delete(table, key));
+	}
+
+	/**
+	 * Read a batch of records with one request. The fields of each record found are stored in result under its
+	 * key. Bindings whose database has a multi-get should override this; by default the records are read one
+	 * at a time.
+	 *
+	 * @param table The name of the table
+	 * @param keys The record keys of the records to read.
+	 * @param fields The list of fields to read, or null for all of them
+	 * @param result A HashMap from record key to the field/value pairs of that record
+	 * @return OK if all records were read, otherwise the result of the first failed read.
+	 */
+	public Status batchRead(String table, List<String> keys, Set<String> fields, HashMap<String,HashMap<String,ByteIterator>> result)
+	{
+		Status res=Status.OK;
+		for (String key : keys)
+		{
+			HashMap<String,ByteIterator> cells=new HashMap<String,ByteIterator>();
+			Status s=read(table, key, fields, cells);
+			if (s.isOk())
+			{
+				result.put(key, cells);
+			}
+			res=firstFailure(res, s);
+		}
+		return res;
+	}
+
+	/**
+	 * Insert a batch of records with one request. Inserted one at a time by default.
+	 *
+	 * @param table The name of the table
+	 * @param records A HashMap from record key to the field/value pairs to insert in that record
+	 * @return OK if all records were inserted, otherwise the result of the first failed insert.
+	 */
+	public Status batchInsert(String table, HashMap<String,HashMap<String,ByteIterator>> records)
+	{
+		Status res=Status.OK;
+		for (Map.Entry<String,HashMap<String,ByteIterator>> record : records.entrySet())
+		{
+			res=firstFailure(res, insert(table, record.getKey(), record.getValue()));
+		}
+		return res;
+	}
+
+	/**
+	 * Update a batch of records with one request. Updated one at a time by default.
+	 *
+	 * @param table The name of the table
+	 * @param records A HashMap from record key to the field/value pairs to update in that record
+	 * @return OK if all records were updated, otherwise the result of the first failed update.
+	 */
+	public Status batchUpdate(String table, HashMap<String,HashMap<String,ByteIterator>> records)
+	{
+		Status res=Status.OK;
+		for (Map.Entry<String,HashMap<String,ByteIterator>> record : records.entrySet())
+		{
+			res=firstFailure(res, update(table, record.getKey(), record.getValue()));
+		}
+		return res;
+	}
+
+	/**
+	 * Delete a batch of records with one request. Deleted one at a time by default.
+	 *
+	 * @param table The name of the table
+	 * @param keys The record keys of the records to delete.
+	 * @return OK if all records were deleted, otherwise the result of the first failed delete.
+	 */
+	public Status batchDelete(String table, List<String> keys)
+	{
+		Status res=Status.OK;
+		for (String key : keys)
+		{
+			res=firstFailure(res, delete(table, key));
+		}
+		return res;
+	}
+
+	private static Status firstFailure(Status sofar, Status next)
+	{
+		return sofar.isOk() ? next : sofar;
+	}
 }
@@ -20,23 +20,27 @@ package com.yahoo.ycsb;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Properties;
 import java.util.Set;
 import java.util.Vector;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.apache.htrace.core.Tracer;
 import org.apache.htrace.core.TraceScope;
 
+import com.yahoo.ycsb.measurements.MeasurementHandle;
 import com.yahoo.ycsb.measurements.Measurements;
 
 /**
  * Wrapper around a "real" DB that measures latencies and counts return codes.
  * Also reports latency separately between OK and failed operations.
+ * Namespace operations are forwarded to DBs that implement {@link NamespaceDB}.
  */
-public class DBWrapper extends DB
+public class DBWrapper extends DB implements NamespaceDB
 {
   private final DB _db;
-  private final Measurements _measurements;
+  private final Measurements _measurements=Measurements.getMeasurements();
   private final Tracer _tracer;
 
   private boolean reportLatencyForEachError = false;
@@ -57,11 +61,83 @@ public class DBWrapper extends DB
   private final String SCOPE_STRING_READ;
   private final String SCOPE_STRING_SCAN;
   private final String SCOPE_STRING_UPDATE;
+  private final String SCOPE_STRING_BATCH_READ;
+  private final String SCOPE_STRING_BATCH_INSERT;
+  private final String SCOPE_STRING_BATCH_UPDATE;
+  private final String SCOPE_STRING_BATCH_DELETE;
+  private final String SCOPE_STRING_MKDIR;
+  private final String SCOPE_STRING_CREATE;
+  private final String SCOPE_STRING_RENAME;
+  private final String SCOPE_STRING_LIST;
+  private final String SCOPE_STRING_RMR;
+  private final String SCOPE_STRING_STAT;
+
+  private final OpHandles CLEANUP = new OpHandles("CLEANUP", false);
+  private final OpHandles READ = new OpHandles("READ", false);
+  private final OpHandles SCAN = new OpHandles("SCAN", false);
+  private final OpHandles UPDATE = new OpHandles("UPDATE", false);
+  private final OpHandles INSERT = new OpHandles("INSERT", false);
+  private final OpHandles DELETE = new OpHandles("DELETE", false);
+  private final OpHandles BATCH_READ = new OpHandles("BATCH-READ", true);
+  private final OpHandles BATCH_INSERT = new OpHandles("BATCH-INSERT", true);
+  private final OpHandles BATCH_UPDATE = new OpHandles("BATCH-UPDATE", true);
+  private final OpHandles BATCH_DELETE = new OpHandles("BATCH-DELETE", true);
+  private final OpHandles MKDIR = new OpHandles("MKDIR", false);
+  private final OpHandles CREATE = new OpHandles("CREATE", false);
+  private final OpHandles RENAME = new OpHandles("RENAME", false);
+  private final OpHandles LIST = new OpHandles("LIST", false);
+  private final OpHandles RMR = new OpHandles("RMR", false);
+  private final OpHandles STAT = new OpHandles("STAT", false);
+
+  /**
+   * The measurement handles of one operation: the operation itself, its
+   * failures and, with reportlatencyforeacherror or latencytrackederrors,
+   * each error it was seen to return. They are resolved once here, so that
+   * measuring an operation does not look its measurements up by name.
+   */
+  private final class OpHandles
+  {
+    private final String op;
+    private final MeasurementHandle ok;
+    private final MeasurementHandle failed;
+    private final ConcurrentHashMap<Status, MeasurementHandle> errors =
+        new ConcurrentHashMap<Status, MeasurementHandle>();
+    /** The per-record measurements of a batch operation, or null. */
+    private final OpHandles perKey;
+
+    OpHandles(String op, boolean batch)
+    {
+      this.op = op;
+      this.ok = _measurements.handle(op);
+      this.failed = _measurements.handle(op + "-FAILED");
+      this.perKey = batch ? new OpHandles(op + "-PER-KEY", false) : null;
+    }
+
+    /**
+     * @return the handle the latency of an operation that returned result
+     *         is measured with.
+     */
+    MeasurementHandle forResult(Status result)
+    {
+      if (result != null && result.isOk()) {
+        return ok;
+      }
+      if (result == null || !(reportLatencyForEachError ||
+          latencyTrackedErrors.contains(result.getName()))) {
+        return failed;
+      }
+      MeasurementHandle h = errors.get(result);
+      if (h == null) {
+        h = _measurements.handle(op + "-" + result.getName());
+        errors.putIfAbsent(result, h);
+      }
+      return h;
+    }
+  }
 
   public DBWrapper(final DB db, final Tracer tracer)
   {
     _db=db;
-    _measurements=Measurements.getMeasurements();
     _tracer = tracer;
     final String simple = db.getClass().getSimpleName();
     SCOPE_STRING_CLEANUP = simple + "#cleanup";
@@ -71,6 +147,16 @@ public class DBWrapper extends DB
     SCOPE_STRING_READ = simple + "#read";
     SCOPE_STRING_SCAN = simple + "#scan";
     SCOPE_STRING_UPDATE = simple + "#update";
+    SCOPE_STRING_BATCH_READ = simple + "#batchRead";
+    SCOPE_STRING_BATCH_INSERT = simple + "#batchInsert";
+    SCOPE_STRING_BATCH_UPDATE = simple + "#batchUpdate";
+    SCOPE_STRING_BATCH_DELETE = simple + "#batchDelete";
+    SCOPE_STRING_MKDIR = simple + "#mkdir";
+    SCOPE_STRING_CREATE = simple + "#createFile";
+    SCOPE_STRING_RENAME = simple + "#rename";
+    SCOPE_STRING_LIST = simple + "#list";
+    SCOPE_STRING_RMR = simple + "#deleteRecursive";
+    SCOPE_STRING_STAT = simple + "#stat";
   }
 
   /**
@@ -128,7 +214,7 @@ public class DBWrapper extends DB
       long st = System.nanoTime();
       _db.cleanup();
       long en=System.nanoTime();
-      measure("CLEANUP", Status.OK, ist, st, en);
+      measure(CLEANUP, Status.OK, ist, st, en);
     }
   }
 
@@ -150,8 +236,8 @@ public class DBWrapper extends DB
       long st = System.nanoTime();
       Status res=_db.read(table,key,fields,result);
       long en=System.nanoTime();
-      measure("READ", res, ist, st, en);
-      _measurements.reportStatus("READ", res);
+      measure(READ, res, ist, st, en);
+      READ.ok.reportStatus(res);
       return res;
     }
   }
@@ -175,27 +261,17 @@ public class DBWrapper extends DB
       long st = System.nanoTime();
       Status res=_db.scan(table,startkey,recordcount,fields,result);
       long en=System.nanoTime();
-      measure("SCAN", res, ist, st, en);
-      _measurements.reportStatus("SCAN", res);
+      measure(SCAN, res, ist, st, en);
+      SCAN.ok.reportStatus(res);
       return res;
     }
   }
 
-  private void measure(String op, Status result, long intendedStartTimeNanos,
+  private void measure(OpHandles op, Status result, long intendedStartTimeNanos,
       long startTimeNanos, long endTimeNanos) {
-    String measurementName = op;
-    if (result == null || !result.isOk()) {
-      if (this.reportLatencyForEachError ||
-          this.latencyTrackedErrors.contains(result.getName())) {
-        measurementName = op + "-" + result.getName();
-      } else {
-        measurementName = op + "-FAILED";
-      }
-    }
-    _measurements.measure(measurementName,
-        (int)((endTimeNanos-startTimeNanos)/1000));
-    _measurements.measureIntended(measurementName,
-        (int)((endTimeNanos-intendedStartTimeNanos)/1000));
+    MeasurementHandle h = op.forResult(result);
+    h.measureNanos(endTimeNanos-startTimeNanos);
+    h.measureIntendedNanos(endTimeNanos-intendedStartTimeNanos);
   }
 
   /**
@@ -215,8 +291,8 @@ public class DBWrapper extends DB
       long st = System.nanoTime();
       Status res=_db.update(table,key,values);
       long en=System.nanoTime();
-      measure("UPDATE", res, ist, st, en);
-      _measurements.reportStatus("UPDATE", res);
+      measure(UPDATE, res, ist, st, en);
+      UPDATE.ok.reportStatus(res);
       return res;
     }
   }
@@ -239,8 +315,8 @@ public class DBWrapper extends DB
       long st = System.nanoTime();
       Status res=_db.insert(table,key,values);
       long en=System.nanoTime();
-      measure("INSERT", res, ist, st, en);
-      _measurements.reportStatus("INSERT", res);
+      measure(INSERT, res, ist, st, en);
+      INSERT.ok.reportStatus(res);
       return res;
     }
   }
@@ -259,8 +335,278 @@ public class DBWrapper extends DB
       long st = System.nanoTime();
       Status res=_db.delete(table,key);
       long en=System.nanoTime();
-      measure("DELETE", res, ist, st, en);
-      _measurements.reportStatus("DELETE", res);
+      measure(DELETE, res, ist, st, en);
+      DELETE.ok.reportStatus(res);
+      return res;
+    }
+  }
+
+  /**
+   * Measure a batch of size records twice: once as a whole under op, and once
+   * per record under op-PER-KEY, each record taking an equal share of the
+   * batch latency. Operations under op-PER-KEY thus count records.
+   */
+  private void measureBatch(OpHandles op, int size, Status result,
+      long intendedStartTimeNanos, long startTimeNanos, long endTimeNanos) {
+    measure(op, result, intendedStartTimeNanos, startTimeNanos, endTimeNanos);
+    if (size > 0) {
+      MeasurementHandle perKey = op.perKey.forResult(result);
+      long latency = (endTimeNanos-startTimeNanos)/size;
+      for (int i = 0; i < size; i++) {
+        perKey.measureNanos(latency);
+      }
+    }
+    op.ok.reportStatus(result);
+  }
+
+  /**
+   * Read a batch of records, measured as BATCH-READ.
+   */
+  public Status batchRead(String table, List<String> keys, Set<String> fields,
+      HashMap<String,HashMap<String,ByteIterator>> result)
+  {
+    try (final TraceScope span = _tracer.newScope(SCOPE_STRING_BATCH_READ)) {
+      long ist=_measurements.getIntendedtartTimeNs();
+      long st = System.nanoTime();
+      Status res=_db.batchRead(table,keys,fields,result);
+      long en=System.nanoTime();
+      measureBatch(BATCH_READ, keys.size(), res, ist, st, en);
+      return res;
+    }
+  }
+
+  /**
+   * Insert a batch of records, measured as BATCH-INSERT.
+   */
+  public Status batchInsert(String table,
+      HashMap<String,HashMap<String,ByteIterator>> records)
+  {
+    try (final TraceScope span = _tracer.newScope(SCOPE_STRING_BATCH_INSERT)) {
+      long ist=_measurements.getIntendedtartTimeNs();
+      long st = System.nanoTime();
+      Status res=_db.batchInsert(table,records);
+      long en=System.nanoTime();
+      measureBatch(BATCH_INSERT, records.size(), res, ist, st, en);
+      return res;
+    }
+  }
+
+  /**
+   * Update a batch of records, measured as BATCH-UPDATE.
+   */
+  public Status batchUpdate(String table,
+      HashMap<String,HashMap<String,ByteIterator>> records)
+  {
+    try (final TraceScope span = _tracer.newScope(SCOPE_STRING_BATCH_UPDATE)) {
+      long ist=_measurements.getIntendedtartTimeNs();
+      long st = System.nanoTime();
+      Status res=_db.batchUpdate(table,records);
+      long en=System.nanoTime();
+      measureBatch(BATCH_UPDATE, records.size(), res, ist, st, en);
+      return res;
+    }
+  }
+
+  /**
+   * Delete a batch of records, measured as BATCH-DELETE.
+   */
+  public Status batchDelete(String table, List<String> keys)
+  {
+    try (final TraceScope span = _tracer.newScope(SCOPE_STRING_BATCH_DELETE)) {
+      long ist=_measurements.getIntendedtartTimeNs();
+      long st = System.nanoTime();
+      Status res=_db.batchDelete(table,keys);
+      long en=System.nanoTime();
+      measureBatch(BATCH_DELETE, keys.size(), res, ist, st, en);
+      return res;
+    }
+  }
+
+  /**
+   * @return a callback that measures the operation when it completes and
+   *         then passes the result on to callback.
+   */
+  private StatusCallback measureOnCompletion(final OpHandles op, final StatusCallback callback)
+  {
+    final long ist=_measurements.getIntendedtartTimeNs();
+    final long st=System.nanoTime();
+    return new StatusCallback() {
+      @Override
+      public void completed(Status res) {
+        long en=System.nanoTime();
+        measure(op, res, ist, st, en);
+        op.ok.reportStatus(res);
+        callback.completed(res);
+      }
+    };
+  }
+
+  /**
+   * Start reading a record, measured as READ when it completes.
+   */
+  @Override
+  public void readAsync(String table, String key, Set<String> fields,
+      HashMap<String,ByteIterator> result, StatusCallback callback)
+  {
+    try (final TraceScope span = _tracer.newScope(SCOPE_STRING_READ)) {
+      _db.readAsync(table,key,fields,result,measureOnCompletion(READ, callback));
+    }
+  }
+
+  /**
+   * Start a range scan, measured as SCAN when it completes.
+   */
+  @Override
+  public void scanAsync(String table, String startkey, int recordcount,
+      Set<String> fields, Vector<HashMap<String,ByteIterator>> result, StatusCallback callback)
+  {
+    try (final TraceScope span = _tracer.newScope(SCOPE_STRING_SCAN)) {
+      _db.scanAsync(table,startkey,recordcount,fields,result,measureOnCompletion(SCAN, callback));
+    }
+  }
+
+  /**
+   * Start updating a record, measured as UPDATE when it completes.
+   */
+  @Override
+  public void updateAsync(String table, String key,
+      HashMap<String,ByteIterator> values, StatusCallback callback)
+  {
+    try (final TraceScope span = _tracer.newScope(SCOPE_STRING_UPDATE)) {
+      _db.updateAsync(table,key,values,measureOnCompletion(UPDATE, callback));
+    }
+  }
+
+  /**
+   * Start inserting a record, measured as INSERT when it completes.
+   */
+  @Override
+  public void insertAsync(String table, String key,
+      HashMap<String,ByteIterator> values, StatusCallback callback)
+  {
+    try (final TraceScope span = _tracer.newScope(SCOPE_STRING_INSERT)) {
+      _db.insertAsync(table,key,values,measureOnCompletion(INSERT, callback));
+    }
+  }
+
+  /**
+   * Start deleting a record, measured as DELETE when it completes.
+   */
+  @Override
+  public void deleteAsync(String table, String key, StatusCallback callback)
+  {
+    try (final TraceScope span = _tracer.newScope(SCOPE_STRING_DELETE)) {
+      _db.deleteAsync(table,key,measureOnCompletion(DELETE, callback));
+    }
+  }
+
+  /**
+   * @return the wrapped DB as a {@link NamespaceDB}, or null if it does not
+   *         support namespace operations.
+   */
+  private NamespaceDB namespaceDB()
+  {
+    return _db instanceof NamespaceDB ? (NamespaceDB) _db : null;
+  }
+
+  /**
+   * Create a directory, measured as MKDIR.
+   */
+  public Status mkdir(String path)
+  {
+    try (final TraceScope span = _tracer.newScope(SCOPE_STRING_MKDIR)) {
+      long ist=_measurements.getIntendedtartTimeNs();
+      long st = System.nanoTime();
+      NamespaceDB ns = namespaceDB();
+      Status res = ns == null ? Status.NOT_IMPLEMENTED : ns.mkdir(path);
+      long en=System.nanoTime();
+      measure(MKDIR, res, ist, st, en);
+      MKDIR.ok.reportStatus(res);
+      return res;
+    }
+  }
+
+  /**
+   * Create an empty file, measured as CREATE.
+   */
+  public Status createFile(String path)
+  {
+    try (final TraceScope span = _tracer.newScope(SCOPE_STRING_CREATE)) {
+      long ist=_measurements.getIntendedtartTimeNs();
+      long st = System.nanoTime();
+      NamespaceDB ns = namespaceDB();
+      Status res = ns == null ? Status.NOT_IMPLEMENTED : ns.createFile(path);
+      long en=System.nanoTime();
+      measure(CREATE, res, ist, st, en);
+      CREATE.ok.reportStatus(res);
+      return res;
+    }
+  }
+
+  /**
+   * Rename a file or directory, measured as RENAME.
+   */
+  public Status rename(String src, String dst)
+  {
+    try (final TraceScope span = _tracer.newScope(SCOPE_STRING_RENAME)) {
+      long ist=_measurements.getIntendedtartTimeNs();
+      long st = System.nanoTime();
+      NamespaceDB ns = namespaceDB();
+      Status res = ns == null ? Status.NOT_IMPLEMENTED : ns.rename(src, dst);
+      long en=System.nanoTime();
+      measure(RENAME, res, ist, st, en);
+      RENAME.ok.reportStatus(res);
+      return res;
+    }
+  }
+
+  /**
+   * List a directory, measured as LIST.
+   */
+  public Status list(String path, Vector<String> result)
+  {
+    try (final TraceScope span = _tracer.newScope(SCOPE_STRING_LIST)) {
+      long ist=_measurements.getIntendedtartTimeNs();
+      long st = System.nanoTime();
+      NamespaceDB ns = namespaceDB();
+      Status res = ns == null ? Status.NOT_IMPLEMENTED : ns.list(path, result);
+      long en=System.nanoTime();
+      measure(LIST, res, ist, st, en);
+      LIST.ok.reportStatus(res);
+      return res;
+    }
+  }
+
+  /**
+   * Delete a path and everything below it, measured as RMR.
+   */
+  public Status deleteRecursive(String path)
+  {
+    try (final TraceScope span = _tracer.newScope(SCOPE_STRING_RMR)) {
+      long ist=_measurements.getIntendedtartTimeNs();
+      long st = System.nanoTime();
+      NamespaceDB ns = namespaceDB();
+      Status res = ns == null ? Status.NOT_IMPLEMENTED : ns.deleteRecursive(path);
+      long en=System.nanoTime();
+      measure(RMR, res, ist, st, en);
+      RMR.ok.reportStatus(res);
+      return res;
+    }
+  }
+
+  /**
+   * Get the status of a path, measured as STAT.
+   */
+  public Status stat(String path, HashMap<String,ByteIterator> result)
+  {
+    try (final TraceScope span = _tracer.newScope(SCOPE_STRING_STAT)) {
+      long ist=_measurements.getIntendedtartTimeNs();
+      long st = System.nanoTime();
+      NamespaceDB ns = namespaceDB();
+      Status res = ns == null ? Status.NOT_IMPLEMENTED : ns.stat(path, result);
+      long en=System.nanoTime();
+      measure(STAT, res, ist, st, en);
+      STAT.ok.reportStatus(res);
       return res;
     }
   }
@@ -0,0 +1,83 @@
+/**
+ * Copyright (c) 2016 YCSB contributors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb;
+
+import java.util.HashMap;
+import java.util.Vector;
+
+/**
+ * Hierarchical namespace operations, for {@link DB} bindings of file systems
+ * that want to run the {@link com.yahoo.ycsb.workloads.MetadataWorkload}.
+ *
+ * All paths are absolute, "/"-separated paths. {@link DBWrapper} forwards
+ * these calls to the wrapped DB when it implements this interface, and
+ * measures each of them under its own name; for other bindings they fail with
+ * {@link Status#NOT_IMPLEMENTED}.
+ */
+public interface NamespaceDB {
+  /**
+   * Create a directory, along with any missing parent directories.
+   *
+   * @param path The directory to create.
+   * @return The result of the operation.
+   */
+  Status mkdir(String path);
+
+  /**
+   * Create an empty file, along with any missing parent directories.
+   *
+   * @param path The file to create.
+   * @return The result of the operation.
+   */
+  Status createFile(String path);
+
+  /**
+   * Rename a file or directory.
+   *
+   * @param src The existing path.
+   * @param dst The new path. Its parent directory must exist.
+   * @return The result of the operation.
+   */
+  Status rename(String src, String dst);
+
+  /**
+   * List the children of a directory.
+   *
+   * @param path The directory to list.
+   * @param result Receives the names of the children.
+   * @return The result of the operation.
+   */
+  Status list(String path, Vector<String> result);
+
+  /**
+   * Delete a file, or a directory along with everything below it.
+   *
+   * @param path The path to delete.
+   * @return The result of the operation.
+   */
+  Status deleteRecursive(String path);
+
+  /**
+   * Get the status of a file or directory.
+   *
+   * @param path The path to look up.
+   * @param result Receives the status as field/value pairs.
+   * @return The result of the operation.
+   */
+  Status stat(String path, HashMap<String, ByteIterator> result);
+}
@@ -0,0 +1,200 @@
+/**
+ * Copyright (c) 2016 YCSB contributors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb;
+
+import java.util.Properties;
+import java.util.Random;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import com.yahoo.ycsb.measurements.Measurements;
+
+/**
+ * A thread that generates operation arrivals on a fixed schedule, independent
+ * of how fast the client threads complete them, for open-loop benchmarking.
+ *
+ * Arrivals are spaced evenly ("constant") or exponentially ("poisson") at the
+ * target rate and queued for the client threads, which act as a worker pool.
+ * Each operation's intended start time is its scheduled arrival, so the
+ * Intended- measurements include the time the arrival spent waiting for a
+ * free worker and stalls are not hidden by a slower offered load.
+ *
+ * The delay between an arrival and its dispatch is measured as
+ * {@link #ARRIVAL_DELAY_MEASUREMENT}, with a return code of ON_TIME or LATE,
+ * and arrivals that find the queue full are dropped and counted as DROPPED
+ * under the same measurement. The queue depth seen by each arrival is
+ * measured as {@link #QUEUE_DEPTH_MEASUREMENT}.
+ */
+public class OpenLoopScheduler extends Thread {
+  /**
+   * How operations arrive: "closed" (default) lets each client thread start
+   * its next operation when the previous one completes, "constant" and
+   * "poisson" schedule arrivals at the target rate.
+   */
+  public static final String ARRIVAL_PROPERTY = "arrival";
+
+  /**
+   * The default arrival mode.
+   */
+  public static final String ARRIVAL_PROPERTY_DEFAULT = "closed";
+
+  /**
+   * The maximum number of arrivals waiting for a client thread; further
+   * arrivals are dropped.
+   */
+  public static final String QUEUE_SIZE_PROPERTY = "openloop.queuesize";
+
+  /**
+   * The default maximum number of waiting arrivals.
+   */
+  public static final String QUEUE_SIZE_PROPERTY_DEFAULT = "10000";
+
+  /**
+   * How long, in microseconds, an arrival may wait for a client thread before
+   * it is counted as late.
+   */
+  public static final String LATE_THRESHOLD_PROPERTY = "openloop.latethreshold";
+
+  /**
+   * The default late threshold in microseconds.
+   */
+  public static final String LATE_THRESHOLD_PROPERTY_DEFAULT = "1000";
+
+  public static final String ARRIVAL_DELAY_MEASUREMENT = "ARRIVAL_DELAY";
+  public static final String QUEUE_DEPTH_MEASUREMENT = "QUEUE_DEPTH";
+
+  public static final Status ON_TIME = new Status("ON_TIME", "The arrival was dispatched within the late threshold.");
+  public static final Status LATE = new Status("LATE", "The arrival waited longer than the late threshold.");
+  public static final Status DROPPED = new Status("DROPPED", "The arrival found the queue full and was dropped.");
+
+  private final boolean poisson;
+  private final double intervalNs;
+  private final long opcount;
+  private final long lateThresholdNs;
+  private final Workload workload;
+  private final Measurements measurements;
+  private final BlockingQueue<Long> arrivals;
+  private final CountDownLatch workersReady;
+  private volatile boolean done = false;
+
+  /**
+   * @return true if props select an open-loop arrival mode.
+   */
+  public static boolean isOpenLoop(Properties props) {
+    return !props.getProperty(ARRIVAL_PROPERTY, ARRIVAL_PROPERTY_DEFAULT).equals("closed");
+  }
+
+  /**
+   * @param props the properties selecting the arrival mode.
+   * @param target the total number of arrivals per second.
+   * @param opcount the total number of arrivals to generate, or 0 for no limit.
+   * @param workers the number of client threads; arrivals start once all of
+   *                them have called {@link #workerReady()}.
+   * @param workload the workload, checked for stop requests.
+   */
+  public OpenLoopScheduler(Properties props, double target, long opcount, int workers, Workload workload) {
+    super("OpenLoopScheduler");
+    setDaemon(true);
+    String mode = props.getProperty(ARRIVAL_PROPERTY, ARRIVAL_PROPERTY_DEFAULT);
+    if (mode.equals("poisson")) {
+      poisson = true;
+    } else if (mode.equals("constant")) {
+      poisson = false;
+    } else {
+      throw new IllegalArgumentException("unknown " + ARRIVAL_PROPERTY + "=" + mode);
+    }
+    if (target <= 0) {
+      throw new IllegalArgumentException(ARRIVAL_PROPERTY + "=" + mode + " requires a target rate");
+    }
+    this.intervalNs = 1e9 / target;
+    this.opcount = opcount;
+    this.lateThresholdNs = TimeUnit.MICROSECONDS.toNanos(Long.parseLong(
+        props.getProperty(LATE_THRESHOLD_PROPERTY, LATE_THRESHOLD_PROPERTY_DEFAULT)));
+    this.workersReady = new CountDownLatch(workers);
+    this.workload = workload;
+    this.measurements = Measurements.getMeasurements();
+    this.arrivals = new ArrayBlockingQueue<Long>(Integer.parseInt(
+        props.getProperty(QUEUE_SIZE_PROPERTY, QUEUE_SIZE_PROPERTY_DEFAULT)));
+  }
+
+  /**
+   * Called by each client thread once its DB and workload state are
+   * initialized, so that slow initialization does not count as lateness.
+   */
+  public void workerReady() {
+    workersReady.countDown();
+  }
+
+  @Override
+  public void run() {
+    try {
+      workersReady.await();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      done = true;
+      return;
+    }
+    final Random random = new Random();
+    final long startTimeNanos = System.nanoTime();
+    double offsetNs = 0;
+    long issued = 0;
+    while ((opcount == 0 || issued < opcount) && !workload.isStopRequested()) {
+      if (poisson) {
+        offsetNs += -Math.log(1.0 - random.nextDouble()) * intervalNs;
+      } else {
+        offsetNs += intervalNs;
+      }
+      long arrival = startTimeNanos + (long) offsetNs;
+      ClientThread.sleepUntil(arrival);
+      issued++;
+      if (!arrivals.offer(arrival)) {
+        measurements.reportStatus(ARRIVAL_DELAY_MEASUREMENT, DROPPED);
+      }
+      measurements.measure(QUEUE_DEPTH_MEASUREMENT, arrivals.size());
+    }
+    done = true;
+  }
+
+  /**
+   * Wait for the next arrival.
+   *
+   * @return the scheduled arrival time in nanoseconds, or -1 once all
+   *         arrivals have been dispatched or the workload was stopped.
+   */
+  public long nextArrival() {
+    try {
+      while (!workload.isStopRequested()) {
+        Long arrival = arrivals.poll(10, TimeUnit.MILLISECONDS);
+        if (arrival != null) {
+          long delayNs = System.nanoTime() - arrival;
+          measurements.measureNanos(ARRIVAL_DELAY_MEASUREMENT, delayNs);
+          measurements.reportStatus(ARRIVAL_DELAY_MEASUREMENT, delayNs > lateThresholdNs ? LATE : ON_TIME);
+          return arrival;
+        }
+        if (done && arrivals.isEmpty()) {
+          break;
+        }
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    return -1;
+  }
+}
@@ -0,0 +1,242 @@
+/**
+ * Copyright (c) 2016 YCSB contributors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+import java.util.Vector;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Lets a client thread keep several operations in flight. Each read, scan,
+ * update, insert and delete the workload issues is started through the
+ * asynchronous API of the wrapped DB and returns {@link Status#BATCHED_OK}
+ * right away, unless async.depth operations of this thread are already
+ * outstanding, in which case it first waits for one of them to complete.
+ *
+ * The wrapped DB is normally a {@link DBWrapper}, which measures each
+ * operation when it completes. Batch and namespace operations are passed
+ * through synchronously, a batch taking up one of the in-flight slots.
+ * Results of reads and scans are filled in after the call returns, so
+ * workloads that look at them, such as CoreWorkload with dataintegrity=true,
+ * cannot be pipelined.
+ */
+public class PipelinedDB extends DB implements NamespaceDB {
+  /**
+   * The number of operations each client thread keeps in flight. 1 (default)
+   * runs every operation synchronously.
+   */
+  public static final String ASYNC_DEPTH_PROPERTY = "async.depth";
+
+  /**
+   * The default depth.
+   */
+  public static final String ASYNC_DEPTH_PROPERTY_DEFAULT = "1";
+
+  private final DB db;
+  private final int depth;
+  private final Semaphore inflight;
+  private final StatusCallback release = new StatusCallback() {
+    @Override
+    public void completed(Status status) {
+      inflight.release();
+    }
+  };
+
+  /**
+   * @return the configured depth.
+   */
+  public static int getDepth(Properties props) {
+    return Integer.parseInt(props.getProperty(ASYNC_DEPTH_PROPERTY, ASYNC_DEPTH_PROPERTY_DEFAULT));
+  }
+
+  public PipelinedDB(DB db, int depth) {
+    this.db = db;
+    this.depth = depth;
+    this.inflight = new Semaphore(depth);
+  }
+
+  private void acquire() {
+    inflight.acquireUninterruptibly();
+  }
+
+  /**
+   * Wait for all outstanding operations to complete.
+   */
+  public void drain() {
+    inflight.acquireUninterruptibly(depth);
+    inflight.release(depth);
+  }
+
+  @Override
+  public void setProperties(Properties p) {
+    db.setProperties(p);
+  }
+
+  @Override
+  public Properties getProperties() {
+    return db.getProperties();
+  }
+
+  @Override
+  public void init() throws DBException {
+    db.init();
+  }
+
+  @Override
+  public void cleanup() throws DBException {
+    drain();
+    db.cleanup();
+  }
+
+  @Override
+  public Status read(String table, String key, Set<String> fields, HashMap<String, ByteIterator> result) {
+    acquire();
+    db.readAsync(table, key, fields, result, release);
+    return Status.BATCHED_OK;
+  }
+
+  @Override
+  public Status scan(String table, String startkey, int recordcount, Set<String> fields,
+                     Vector<HashMap<String, ByteIterator>> result) {
+    acquire();
+    db.scanAsync(table, startkey, recordcount, fields, result, release);
+    return Status.BATCHED_OK;
+  }
+
+  @Override
+  public Status update(String table, String key, HashMap<String, ByteIterator> values) {
+    acquire();
+    db.updateAsync(table, key, values, release);
+    return Status.BATCHED_OK;
+  }
+
+  @Override
+  public Status insert(String table, String key, HashMap<String, ByteIterator> values) {
+    acquire();
+    db.insertAsync(table, key, values, release);
+    return Status.BATCHED_OK;
+  }
+
+  /**
+   * Start an insert like {@link #insert}, and call back with its result once
+   * it completes.
+   */
+  @Override
+  public void insertAsync(String table, String key, HashMap<String, ByteIterator> values,
+                          final StatusCallback callback) {
+    acquire();
+    db.insertAsync(table, key, values, new StatusCallback() {
+      @Override
+      public void completed(Status status) {
+        inflight.release();
+        callback.completed(status);
+      }
+    });
+  }
+
+  @Override
+  public Status delete(String table, String key) {
+    acquire();
+    db.deleteAsync(table, key, release);
+    return Status.BATCHED_OK;
+  }
+
+  @Override
+  public Status batchRead(String table, List<String> keys, Set<String> fields,
+                          HashMap<String, HashMap<String, ByteIterator>> result) {
+    acquire();
+    try {
+      return db.batchRead(table, keys, fields, result);
+    } finally {
+      inflight.release();
+    }
+  }
+
+  @Override
+  public Status batchInsert(String table, HashMap<String, HashMap<String, ByteIterator>> records) {
+    acquire();
+    try {
+      return db.batchInsert(table, records);
+    } finally {
+      inflight.release();
+    }
+  }
+
+  @Override
+  public Status batchUpdate(String table, HashMap<String, HashMap<String, ByteIterator>> records) {
+    acquire();
+    try {
+      return db.batchUpdate(table, records);
+    } finally {
+      inflight.release();
+    }
+  }
+
+  @Override
+  public Status batchDelete(String table, List<String> keys) {
+    acquire();
+    try {
+      return db.batchDelete(table, keys);
+    } finally {
+      inflight.release();
+    }
+  }
+
+  private NamespaceDB namespace() {
+    return db instanceof NamespaceDB ? (NamespaceDB) db : null;
+  }
+
+  @Override
+  public Status mkdir(String path) {
+    NamespaceDB ns = namespace();
+    return ns == null ? Status.NOT_IMPLEMENTED : ns.mkdir(path);
+  }
+
+  @Override
+  public Status createFile(String path) {
+    NamespaceDB ns = namespace();
+    return ns == null ? Status.NOT_IMPLEMENTED : ns.createFile(path);
+  }
+
+  @Override
+  public Status rename(String src, String dst) {
+    NamespaceDB ns = namespace();
+    return ns == null ? Status.NOT_IMPLEMENTED : ns.rename(src, dst);
+  }
+
+  @Override
+  public Status list(String path, Vector<String> result) {
+    NamespaceDB ns = namespace();
+    return ns == null ? Status.NOT_IMPLEMENTED : ns.list(path, result);
+  }
+
+  @Override
+  public Status deleteRecursive(String path) {
+    NamespaceDB ns = namespace();
+    return ns == null ? Status.NOT_IMPLEMENTED : ns.deleteRecursive(path);
+  }
+
+  @Override
+  public Status stat(String path, HashMap<String, ByteIterator> result) {
+    NamespaceDB ns = namespace();
+    return ns == null ? Status.NOT_IMPLEMENTED : ns.stat(path, result);
+  }
+}
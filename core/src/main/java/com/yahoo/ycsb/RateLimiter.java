@@ -0,0 +1,127 @@
+/**
+ * Copyright (c) 2016 YCSB contributors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb;
+
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A rate limiter shared by all client threads, handing out the slots of one
+ * global schedule at the target rate so that any free thread can take the
+ * next slot, instead of each thread keeping its own share of the target.
+ *
+ * Slots are numbered, and slot n is due at start + n / target, where start
+ * is when the first slot is taken. Taking a slot is a single atomic
+ * increment, or compare-and-set when bursts are bounded, so the limiter does
+ * not become a point of contention even with thousands of threads. The
+ * slot's due time is the operation's intended start time.
+ *
+ * When all threads are busy the schedule falls behind and the slots that are
+ * already due are then taken back to back. ratelimiter.burst bounds how far
+ * behind the schedule may fall: slots more than that many intervals overdue
+ * are skipped, limiting the burst that follows a stall.
+ */
+public class RateLimiter {
+  /**
+   * How target is enforced: "thread" (default) gives each thread an equal
+   * share of it, "global" shares one schedule between all threads.
+   */
+  public static final String RATE_LIMITER_PROPERTY = "ratelimiter";
+
+  /**
+   * The default rate limiter.
+   */
+  public static final String RATE_LIMITER_PROPERTY_DEFAULT = "thread";
+
+  /**
+   * The largest number of overdue slots that may be taken back to back.
+   * 0 (default) never skips slots.
+   */
+  public static final String BURST_PROPERTY = "ratelimiter.burst";
+
+  /**
+   * The default burst, which never skips slots.
+   */
+  public static final String BURST_PROPERTY_DEFAULT = "0";
+
+  private final double intervalNs;
+  private final long opcount;
+  private final long burst;
+  private final AtomicLong nextSlot = new AtomicLong();
+  private final AtomicLong issued = new AtomicLong();
+  private final AtomicLong startNs = new AtomicLong();
+
+  /**
+   * @return true if props ask for a global rate limiter.
+   */
+  public static boolean isGlobal(Properties props) {
+    String mode = props.getProperty(RATE_LIMITER_PROPERTY, RATE_LIMITER_PROPERTY_DEFAULT);
+    if (mode.equals("global")) {
+      return true;
+    } else if (mode.equals("thread")) {
+      return false;
+    }
+    throw new IllegalArgumentException("unknown " + RATE_LIMITER_PROPERTY + "=" + mode);
+  }
+
+  /**
+   * @param props the properties configuring the limiter.
+   * @param target the total number of operations per second.
+   * @param opcount the total number of slots to hand out, or 0 for no limit.
+   */
+  public RateLimiter(Properties props, double target, long opcount) {
+    if (target <= 0) {
+      throw new IllegalArgumentException(RATE_LIMITER_PROPERTY + "=global requires a target rate");
+    }
+    this.intervalNs = 1e9 / target;
+    this.opcount = opcount;
+    this.burst = Long.parseLong(props.getProperty(BURST_PROPERTY, BURST_PROPERTY_DEFAULT));
+  }
+
+  /**
+   * Take the next slot of the schedule.
+   *
+   * @return the time the slot is due, in nanoseconds, or -1 once opcount
+   *         slots have been handed out.
+   */
+  public long acquire() {
+    if (opcount > 0 && issued.getAndIncrement() >= opcount) {
+      return -1;
+    }
+    long start = startNs.get();
+    if (start == 0) {
+      // The schedule starts with the first thread done initializing its DB.
+      startNs.compareAndSet(0, System.nanoTime());
+      start = startNs.get();
+    }
+    long slot;
+    if (burst <= 0) {
+      slot = nextSlot.getAndIncrement();
+    } else {
+      while (true) {
+        long next = nextSlot.get();
+        long earliest = (long) ((System.nanoTime() - start) / intervalNs) - burst;
+        slot = Math.max(next, earliest);
+        if (nextSlot.compareAndSet(next, slot + 1)) {
+          break;
+        }
+      }
+    }
+    return start + (long) (slot * intervalNs);
+  }
+}
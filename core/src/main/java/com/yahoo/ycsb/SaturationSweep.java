@@ -0,0 +1,577 @@
+/**
+ * Copyright (c) 2016 YCSB contributors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb;
+
+import java.io.IOException;
+import java.text.DecimalFormat;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+import java.util.Vector;
+import java.util.concurrent.BrokenBarrierException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import com.yahoo.ycsb.measurements.Measurements;
+import com.yahoo.ycsb.measurements.exporter.MeasurementsExporter;
+
+/**
+ * Runs the transaction phase as a series of steps within one JVM, stepping
+ * either the target throughput or the number of client threads through a
+ * ramp and holding each step for a fixed time, to find the throughput at
+ * which latency takes off.
+ *
+ * Each step reports its achieved throughput, latency percentiles and error
+ * rate, measured over that step only. Latencies are those of the individual
+ * DB operations, taken from the intended start time when measurement.interval
+ * is "intended" or "both". The sweep can stop early once a step's 99th
+ * percentile latency exceeds an SLO. The regular measurements keep
+ * accumulating over the whole sweep.
+ */
+public class SaturationSweep {
+  /**
+   * What to step: "none" (default) runs the usual single step, "target" steps
+   * the target throughput with threadcount threads and "threadcount" steps the
+   * number of threads at the given target, if any.
+   */
+  public static final String SWEEP_PROPERTY = "sweep";
+
+  /**
+   * The default sweep mode.
+   */
+  public static final String SWEEP_PROPERTY_DEFAULT = "none";
+
+  /**
+   * Comma-separated values of the swept parameter, one per step, in the order
+   * to run them.
+   */
+  public static final String STEPS_PROPERTY = "sweep.steps";
+
+  /**
+   * How long to hold each step, in seconds.
+   */
+  public static final String STEP_TIME_PROPERTY = "sweep.steptime";
+
+  /**
+   * The default step time in seconds.
+   */
+  public static final String STEP_TIME_PROPERTY_DEFAULT = "30";
+
+  /**
+   * Stop after the first step whose 99th percentile latency exceeds this many
+   * microseconds. 0 (default) runs every step.
+   */
+  public static final String SLO_PROPERTY = "sweep.slo";
+
+  /**
+   * The default SLO, which never stops the sweep.
+   */
+  public static final String SLO_PROPERTY_DEFAULT = "0";
+
+  private final boolean stepThreads;
+  private final int[] steps;
+  private final long stepTimeNs;
+  private final long sloUs;
+  private final int threadcount;
+  private final int target;
+  private final Properties props;
+  private Workload sweptWorkload;
+  private final Recorder latencies = new Recorder(3);
+  private final AtomicLong operations = new AtomicLong();
+  private final AtomicLong errors = new AtomicLong();
+  private final List<Worker> workers = new ArrayList<Worker>();
+  private final List<StepResult> results = new ArrayList<StepResult>();
+
+  private CountDownLatch initLatch;
+  private volatile boolean initFailed;
+  private CyclicBarrier startBarrier;
+  private CyclicBarrier endBarrier;
+  private volatile Step current;
+
+  /**
+   * @return true if props ask for a sweep.
+   */
+  public static boolean isSweep(Properties props) {
+    return !props.getProperty(SWEEP_PROPERTY, SWEEP_PROPERTY_DEFAULT).equals("none");
+  }
+
+  /**
+   * @param props the properties describing the sweep.
+   * @param threadcount the number of threads for target sweeps.
+   * @param target the target throughput for thread count sweeps, or 0 for none.
+   */
+  public SaturationSweep(Properties props, int threadcount, int target) {
+    String mode = props.getProperty(SWEEP_PROPERTY, SWEEP_PROPERTY_DEFAULT);
+    if (mode.equals("threadcount")) {
+      stepThreads = true;
+    } else if (mode.equals("target")) {
+      stepThreads = false;
+    } else {
+      throw new IllegalArgumentException("unknown " + SWEEP_PROPERTY + "=" + mode);
+    }
+    String stepsString = props.getProperty(STEPS_PROPERTY);
+    if (stepsString == null || stepsString.trim().isEmpty()) {
+      throw new IllegalArgumentException(SWEEP_PROPERTY + "=" + mode + " requires " + STEPS_PROPERTY);
+    }
+    String[] values = stepsString.split(",");
+    steps = new int[values.length];
+    for (int i = 0; i < values.length; i++) {
+      steps[i] = Integer.parseInt(values[i].trim());
+      if (steps[i] <= 0) {
+        throw new IllegalArgumentException(STEPS_PROPERTY + " values must be positive: " + stepsString);
+      }
+    }
+    this.stepTimeNs = TimeUnit.SECONDS.toNanos(Long.parseLong(
+        props.getProperty(STEP_TIME_PROPERTY, STEP_TIME_PROPERTY_DEFAULT)));
+    this.sloUs = Long.parseLong(props.getProperty(SLO_PROPERTY, SLO_PROPERTY_DEFAULT));
+    this.threadcount = threadcount;
+    this.target = target;
+    this.props = props;
+  }
+
+  /**
+   * @return the number of DB instances, and threads, the sweep needs.
+   */
+  public int getMaxThreads() {
+    if (!stepThreads) {
+      return threadcount;
+    }
+    int max = 0;
+    for (int step : steps) {
+      max = Math.max(max, step);
+    }
+    return max;
+  }
+
+  /**
+   * Add the DB for the next worker thread. Call {@link #getMaxThreads()}
+   * times before {@link #run(Workload)}.
+   */
+  public void addWorker(DB db) {
+    workers.add(new Worker(workers.size(), new StepDB(db, this)));
+  }
+
+  /**
+   * @return the worker threads, for the terminator thread to wait on.
+   */
+  public List<Thread> getThreads() {
+    return new ArrayList<Thread>(workers);
+  }
+
+  /**
+   * Run the steps in order, until they are all done, a step misses the SLO or
+   * the workload is asked to stop.
+   *
+   * @param workload the workload to run.
+   * @return the total number of transactions done over all steps.
+   * @throws DBException if a worker failed to initialize its DB or workload
+   *         state, in which case no step is run, or failed during a step.
+   */
+  public long run(Workload workload) throws InterruptedException, DBException {
+    this.sweptWorkload = workload;
+    initLatch = new CountDownLatch(workers.size());
+    startBarrier = new CyclicBarrier(workers.size() + 1);
+    endBarrier = new CyclicBarrier(workers.size() + 1);
+    for (Worker worker : workers) {
+      worker.start();
+    }
+    initLatch.await();
+    long total = 0;
+    try {
+      for (int i = 0; i < steps.length && !initFailed && !workload.isStopRequested(); i++) {
+        int threads = stepThreads ? steps[i] : threadcount;
+        int rate = stepThreads ? target : steps[i];
+        long tickNs = rate > 0 ? (long) (1e9 * threads / rate) : 0;
+
+        latencies.getIntervalHistogram();
+        operations.set(0);
+        errors.set(0);
+        long startNs = System.nanoTime();
+        current = new Step(threads, tickNs, startNs, startNs + stepTimeNs);
+        startBarrier.await();
+        endBarrier.await();
+        long elapsedNs = System.nanoTime() - startNs;
+
+        long done = 0;
+        for (Worker worker : workers) {
+          done += worker.stepOps;
+        }
+        total += done;
+        long ops = operations.get();
+        StepResult result = new StepResult(i + 1, rate, threads, done * 1e9 / elapsedNs,
+            latencies.getIntervalHistogram(), ops == 0 ? 0 : 100.0 * errors.get() / ops);
+        results.add(result);
+        System.err.println(result);
+        if (sloUs > 0 && result.p99Us > sloUs) {
+          System.err.println("Step " + (i + 1) + " exceeded the p99 SLO of " + sloUs + " us, stopping the sweep.");
+          break;
+        }
+      }
+      current = null;
+      startBarrier.await();
+    } catch (BrokenBarrierException e) {
+      throw new DBException("A sweep worker failed, stopping the sweep.", e);
+    }
+    for (Worker worker : workers) {
+      worker.join();
+    }
+    if (initFailed) {
+      throw new DBException("A sweep worker failed to initialize, not running the sweep.");
+    }
+    return total;
+  }
+
+  /**
+   * Write one group of values per completed step, followed by the highest
+   * throughput reached within the SLO when one was given.
+   */
+  public void exportMeasurements(MeasurementsExporter exporter) throws IOException {
+    double best = 0;
+    for (StepResult result : results) {
+      String name = "SWEEP-" + result.step;
+      exporter.write(name, "Target(ops/sec)", result.target);
+      exporter.write(name, "Threads", result.threads);
+      exporter.write(name, "Throughput(ops/sec)", result.throughput);
+      exporter.write(name, "50thPercentileLatency(us)", result.p50Us);
+      exporter.write(name, "99thPercentileLatency(us)", result.p99Us);
+      exporter.write(name, "99.9thPercentileLatency(us)", result.p999Us);
+      exporter.write(name, "ErrorRate(%)", result.errorRate);
+      if (sloUs == 0 || result.p99Us <= sloUs) {
+        best = Math.max(best, result.throughput);
+      }
+    }
+    if (sloUs > 0) {
+      exporter.write("SWEEP", "MaxThroughputWithinSLO(ops/sec)", best);
+    }
+  }
+
+  /**
+   * The parameters of the running step.
+   */
+  private static final class Step {
+    private final int threads;
+    private final long tickNs;
+    private final long startNs;
+    private final long endNs;
+
+    Step(int threads, long tickNs, long startNs, long endNs) {
+      this.threads = threads;
+      this.tickNs = tickNs;
+      this.startNs = startNs;
+      this.endNs = endNs;
+    }
+  }
+
+  /**
+   * What one step achieved.
+   */
+  private static final class StepResult {
+    private final int step;
+    private final int target;
+    private final int threads;
+    private final double throughput;
+    private final long p50Us;
+    private final long p99Us;
+    private final long p999Us;
+    private final double errorRate;
+
+    StepResult(int step, int target, int threads, double throughput, Histogram histogram, double errorRate) {
+      this.step = step;
+      this.target = target;
+      this.threads = threads;
+      this.throughput = throughput;
+      this.p50Us = histogram.getValueAtPercentile(50);
+      this.p99Us = histogram.getValueAtPercentile(99);
+      this.p999Us = histogram.getValueAtPercentile(99.9);
+      this.errorRate = errorRate;
+    }
+
+    @Override
+    public String toString() {
+      DecimalFormat d = new DecimalFormat("#.##");
+      return "[SWEEP-" + step + "] target=" + target + " threads=" + threads
+          + " throughput=" + d.format(throughput) + " p50=" + p50Us + " p99=" + p99Us
+          + " p99.9=" + p999Us + " errors=" + d.format(errorRate) + "%";
+    }
+  }
+
+  /**
+   * A client thread that lives for the whole sweep, so that its DB and
+   * workload state are initialized once, and takes part in the steps that
+   * use at least id + 1 threads.
+   */
+  private final class Worker extends Thread {
+    private final int id;
+    private final DB db;
+    private final Measurements measurements = Measurements.getMeasurements();
+    private volatile long stepOps;
+
+    Worker(int id, DB db) {
+      super("SweepWorker-" + id);
+      this.id = id;
+      this.db = db;
+    }
+
+    @Override
+    public void run() {
+      Object state = null;
+      boolean initialized = false;
+      try {
+        db.init();
+        initialized = true;
+        state = sweptWorkload.initThread(props, id, workers.size());
+      } catch (DBException | WorkloadException e) {
+        e.printStackTrace();
+        e.printStackTrace(System.out);
+        // Still take part in the final barrier, which ends the sweep.
+        initFailed = true;
+      } finally {
+        initLatch.countDown();
+      }
+      try {
+        while (true) {
+          startBarrier.await();
+          Step step = current;
+          if (step == null) {
+            break;
+          }
+          stepOps = id < step.threads ? runStep(step, state) : 0;
+          endBarrier.await();
+        }
+      } catch (InterruptedException | BrokenBarrierException e) {
+        return;
+      } catch (RuntimeException e) {
+        e.printStackTrace();
+        e.printStackTrace(System.out);
+        // Break the barriers, so the sweep fails instead of waiting forever.
+        startBarrier.reset();
+        endBarrier.reset();
+        return;
+      }
+      if (!initialized) {
+        return;
+      }
+      try {
+        measurements.setIntendedStartTimeNs(0);
+        db.cleanup();
+      } catch (DBException e) {
+        e.printStackTrace();
+        e.printStackTrace(System.out);
+      }
+    }
+
+    private long runStep(Step step, Object state) {
+      // Spread the threads over the first tick so they don't all start at once.
+      long firstNs = step.startNs + step.tickNs * id / step.threads;
+      long ops = 0;
+      while (System.nanoTime() < step.endNs && !sweptWorkload.isStopRequested()) {
+        if (step.tickNs > 0) {
+          long deadline = firstNs + ops * step.tickNs;
+          if (deadline >= step.endNs) {
+            break;
+          }
+          ClientThread.sleepUntil(deadline);
+          measurements.setIntendedStartTimeNs(deadline);
+        }
+        if (!sweptWorkload.doTransaction(db, state)) {
+          break;
+        }
+        ops++;
+      }
+      return ops;
+    }
+  }
+
+  /**
+   * Records the latency and outcome of each operation of the running step,
+   * on top of the regular measurements taken by the wrapped DB.
+   */
+  private static final class StepDB extends DB implements NamespaceDB {
+    private final DB db;
+    private final SaturationSweep sweep;
+    private final Measurements measurements = Measurements.getMeasurements();
+
+    StepDB(DB db, SaturationSweep sweep) {
+      this.db = db;
+      this.sweep = sweep;
+    }
+
+    /**
+     * @return when the next operation was meant to start, taken before it
+     *         runs: without a target, the intended start time is the time
+     *         it is asked for.
+     */
+    private long intendedStart() {
+      return measurements.getIntendedtartTimeNs();
+    }
+
+    private Status record(long intendedNs, long startNs, Status status) {
+      long from = intendedNs != 0 ? intendedNs : startNs;
+      sweep.latencies.recordValue((System.nanoTime() - from) / 1000);
+      sweep.operations.incrementAndGet();
+      if (!status.isOk()) {
+        sweep.errors.incrementAndGet();
+      }
+      return status;
+    }
+
+    private NamespaceDB namespace() {
+      return db instanceof NamespaceDB ? (NamespaceDB) db : null;
+    }
+
+    @Override
+    public void setProperties(Properties p) {
+      db.setProperties(p);
+    }
+
+    @Override
+    public Properties getProperties() {
+      return db.getProperties();
+    }
+
+    @Override
+    public void init() throws DBException {
+      db.init();
+    }
+
+    @Override
+    public void cleanup() throws DBException {
+      db.cleanup();
+    }
+
+    @Override
+    public Status read(String table, String key, Set<String> fields, HashMap<String, ByteIterator> result) {
+      long ist = intendedStart();
+      long st = System.nanoTime();
+      return record(ist, st, db.read(table, key, fields, result));
+    }
+
+    @Override
+    public Status scan(String table, String startkey, int recordcount, Set<String> fields,
+                       Vector<HashMap<String, ByteIterator>> result) {
+      long ist = intendedStart();
+      long st = System.nanoTime();
+      return record(ist, st, db.scan(table, startkey, recordcount, fields, result));
+    }
+
+    @Override
+    public Status update(String table, String key, HashMap<String, ByteIterator> values) {
+      long ist = intendedStart();
+      long st = System.nanoTime();
+      return record(ist, st, db.update(table, key, values));
+    }
+
+    @Override
+    public Status insert(String table, String key, HashMap<String, ByteIterator> values) {
+      long ist = intendedStart();
+      long st = System.nanoTime();
+      return record(ist, st, db.insert(table, key, values));
+    }
+
+    @Override
+    public Status delete(String table, String key) {
+      long ist = intendedStart();
+      long st = System.nanoTime();
+      return record(ist, st, db.delete(table, key));
+    }
+
+    @Override
+    public Status batchRead(String table, List<String> keys, Set<String> fields,
+                            HashMap<String, HashMap<String, ByteIterator>> result) {
+      long ist = intendedStart();
+      long st = System.nanoTime();
+      return record(ist, st, db.batchRead(table, keys, fields, result));
+    }
+
+    @Override
+    public Status batchInsert(String table, HashMap<String, HashMap<String, ByteIterator>> records) {
+      long ist = intendedStart();
+      long st = System.nanoTime();
+      return record(ist, st, db.batchInsert(table, records));
+    }
+
+    @Override
+    public Status batchUpdate(String table, HashMap<String, HashMap<String, ByteIterator>> records) {
+      long ist = intendedStart();
+      long st = System.nanoTime();
+      return record(ist, st, db.batchUpdate(table, records));
+    }
+
+    @Override
+    public Status batchDelete(String table, List<String> keys) {
+      long ist = intendedStart();
+      long st = System.nanoTime();
+      return record(ist, st, db.batchDelete(table, keys));
+    }
+
+    @Override
+    public Status mkdir(String path) {
+      long ist = intendedStart();
+      long st = System.nanoTime();
+      NamespaceDB ns = namespace();
+      return record(ist, st, ns == null ? Status.NOT_IMPLEMENTED : ns.mkdir(path));
+    }
+
+    @Override
+    public Status createFile(String path) {
+      long ist = intendedStart();
+      long st = System.nanoTime();
+      NamespaceDB ns = namespace();
+      return record(ist, st, ns == null ? Status.NOT_IMPLEMENTED : ns.createFile(path));
+    }
+
+    @Override
+    public Status rename(String src, String dst) {
+      long ist = intendedStart();
+      long st = System.nanoTime();
+      NamespaceDB ns = namespace();
+      return record(ist, st, ns == null ? Status.NOT_IMPLEMENTED : ns.rename(src, dst));
+    }
+
+    @Override
+    public Status list(String path, Vector<String> result) {
+      long ist = intendedStart();
+      long st = System.nanoTime();
+      NamespaceDB ns = namespace();
+      return record(ist, st, ns == null ? Status.NOT_IMPLEMENTED : ns.list(path, result));
+    }
+
+    @Override
+    public Status deleteRecursive(String path) {
+      long ist = intendedStart();
+      long st = System.nanoTime();
+      NamespaceDB ns = namespace();
+      return record(ist, st, ns == null ? Status.NOT_IMPLEMENTED : ns.deleteRecursive(path));
+    }
+
+    @Override
+    public Status stat(String path, HashMap<String, ByteIterator> result) {
+      long ist = intendedStart();
+      long st = System.nanoTime();
+      NamespaceDB ns = namespace();
+      return record(ist, st, ns == null ? Status.NOT_IMPLEMENTED : ns.stat(path, result));
+    }
+  }
+}
@@ -0,0 +1,31 @@
+/**
+ * Copyright (c) 2016 YCSB contributors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb;
+
+/**
+ * Receives the result of an asynchronous {@link DB} operation.
+ */
+public interface StatusCallback {
+  /**
+   * Called exactly once when the operation completes, possibly on a thread
+   * of the DB client rather than the thread that started the operation.
+   *
+   * @param status The result of the operation.
+   */
+  void completed(Status status);
+}
@@ -0,0 +1,141 @@
+/**
+ * Copyright (c) 2016 YCSB contributors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb;
+
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.yahoo.ycsb.measurements.Measurements;
+
+/**
+ * Tracks the warmup period at the start of a run, during which operations
+ * run normally but are measured as WARMUP- measurements, so that JIT
+ * compilation, connection setup and cold caches do not skew the steady-state
+ * results.
+ *
+ * The warmup ends after warmup.time seconds or warmup.ops operations over
+ * all client threads, whichever comes first. The client threads report each
+ * completed operation; the first one to see the warmup over ends it.
+ */
+public class Warmup {
+  /**
+   * The length of the warmup, in seconds. 0 (default) means no time limit.
+   */
+  public static final String WARMUP_TIME_PROPERTY = "warmup.time";
+
+  /**
+   * The default warmup time.
+   */
+  public static final String WARMUP_TIME_PROPERTY_DEFAULT = "0";
+
+  /**
+   * The number of operations, over all threads, in the warmup. 0 (default)
+   * means no operation limit.
+   */
+  public static final String WARMUP_OPS_PROPERTY = "warmup.ops";
+
+  /**
+   * The default number of warmup operations.
+   */
+  public static final String WARMUP_OPS_PROPERTY_DEFAULT = "0";
+
+  private final long durationNs;
+  private final long maxOps;
+  private final Measurements measurements;
+  private final AtomicLong ops = new AtomicLong();
+  private final AtomicBoolean active = new AtomicBoolean();
+  private volatile long startNs;
+  private volatile long endTimeMs;
+  private volatile long endCpuNs;
+  private volatile long opsAtEnd;
+
+  /**
+   * @return true if props ask for a warmup.
+   */
+  public static boolean isEnabled(Properties props) {
+    return Long.parseLong(props.getProperty(WARMUP_TIME_PROPERTY, WARMUP_TIME_PROPERTY_DEFAULT)) > 0
+        || Long.parseLong(props.getProperty(WARMUP_OPS_PROPERTY, WARMUP_OPS_PROPERTY_DEFAULT)) > 0;
+  }
+
+  public Warmup(Properties props) {
+    durationNs = TimeUnit.SECONDS.toNanos(Long.parseLong(
+        props.getProperty(WARMUP_TIME_PROPERTY, WARMUP_TIME_PROPERTY_DEFAULT)));
+    maxOps = Long.parseLong(props.getProperty(WARMUP_OPS_PROPERTY, WARMUP_OPS_PROPERTY_DEFAULT));
+    measurements = Measurements.getMeasurements();
+  }
+
+  /**
+   * Start the warmup. Called just before the client threads start.
+   */
+  public void start() {
+    startNs = System.nanoTime();
+    active.set(true);
+    measurements.setWarmingUp(true);
+  }
+
+  /**
+   * Count an operation completed by a client thread, ending the warmup if it
+   * is over.
+   */
+  public void opDone() {
+    if (!active.get()) {
+      return;
+    }
+    long done = ops.incrementAndGet();
+    if ((maxOps > 0 && done >= maxOps) || (durationNs > 0 && System.nanoTime() - startNs >= durationNs)) {
+      if (active.compareAndSet(true, false)) {
+        measurements.setWarmingUp(false);
+        opsAtEnd = done;
+        endCpuNs = Utils.getProcessCpuTimeNs();
+        endTimeMs = System.currentTimeMillis();
+        System.err.println("Warmup done after " + done + " operations.");
+      }
+    }
+  }
+
+  /**
+   * @return true once the warmup has ended.
+   */
+  public boolean isDone() {
+    return endTimeMs != 0;
+  }
+
+  /**
+   * @return the wall clock time the warmup ended, in milliseconds.
+   */
+  public long getEndTimeMs() {
+    return endTimeMs;
+  }
+
+  /**
+   * @return the CPU time used by the JVM when the warmup ended, in
+   *         nanoseconds, or a negative value if the JDK does not report it.
+   */
+  public long getEndCpuNs() {
+    return endCpuNs;
+  }
+
+  /**
+   * @return the number of operations done during the warmup.
+   */
+  public long getOps() {
+    return opsAtEnd;
+  }
+}
@@ -40,6 +40,13 @@ public abstract class Workload {
   public static final String INSERT_COUNT_PROPERTY = "insertcount";
   
   public static final String INSERT_START_PROPERTY_DEFAULT = "0";
+
+  /**
+   * The first record a workload inserts in the transaction phase, so that
+   * instances running in parallel insert disjoint records. Defaults to
+   * recordcount.
+   */
+  public static final String TRANSACTION_INSERT_START_PROPERTY = "transactioninsertstart";
   
   private volatile AtomicBoolean stopRequested = new AtomicBoolean(false);
   
@@ -0,0 +1,155 @@
+/**
+ * Copyright (c) 2016 YCSB contributors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb.measurements;
+
+import com.yahoo.ycsb.Status;
+
+/**
+ * The measurements of one operation name, as returned by
+ * {@link Measurements#handle(String)}. Recording through a handle has the
+ * same effect as the {@link Measurements} methods taking the name, but goes
+ * straight to the operation's {@link OneMeasurement} instead of looking it
+ * up by name every time.
+ *
+ * The measurements are created on first use, so that a handle for an
+ * operation that never happens, such as READ-FAILED, adds nothing to the
+ * output.
+ */
+public final class MeasurementHandle {
+  private final Measurements measurements;
+  private final String operation;
+  private volatile OneMeasurement op;
+  private volatile OneMeasurement intended;
+  private volatile MeasurementHandle warmup;
+
+  MeasurementHandle(Measurements measurements, String operation) {
+    this.measurements = measurements;
+    this.operation = operation;
+  }
+
+  /**
+   * @return the operation name.
+   */
+  public String getOperation() {
+    return operation;
+  }
+
+  private OneMeasurement op() {
+    OneMeasurement m = op;
+    if (m == null) {
+      m = measurements.getOpMeasurement(operation);
+      op = m;
+    }
+    return m;
+  }
+
+  private OneMeasurement intended() {
+    OneMeasurement m = intended;
+    if (m == null) {
+      m = measurements.getOpIntendedMeasurement(operation);
+      intended = m;
+    }
+    return m;
+  }
+
+  /**
+   * @return the handle to record with: while warming up, the one of the
+   *         WARMUP- measurements.
+   */
+  private MeasurementHandle target() {
+    if (!measurements.isWarmingUp()) {
+      return this;
+    }
+    MeasurementHandle w = warmup;
+    if (w == null) {
+      w = new MeasurementHandle(measurements, Measurements.WARMUP_PREFIX + operation);
+      warmup = w;
+    }
+    return w;
+  }
+
+  /**
+   * @see Measurements#measure(String, int)
+   */
+  public void measure(int latency) {
+    if (measurements._measurementInterval == 1) {
+      return;
+    }
+    record(target().op(), latency);
+  }
+
+  /**
+   * @see Measurements#measureIntended(String, int)
+   */
+  public void measureIntended(int latency) {
+    if (measurements._measurementInterval == 0) {
+      return;
+    }
+    record(target().intended(), latency);
+  }
+
+  /**
+   * @see Measurements#reportStatus(String, Status)
+   */
+  public void reportStatus(Status status) {
+    MeasurementHandle h = target();
+    (measurements._measurementInterval == 1 ? h.intended() : h.op()).reportStatus(status);
+  }
+
+  /**
+   * @see Measurements#measureNanos(String, long)
+   */
+  public void measureNanos(long latencyNanos) {
+    if (measurements._measurementInterval == 1) {
+      return;
+    }
+    recordNanos(target().op(), latencyNanos);
+  }
+
+  /**
+   * @see Measurements#measureIntendedNanos(String, long)
+   */
+  public void measureIntendedNanos(long latencyNanos) {
+    if (measurements._measurementInterval == 0) {
+      return;
+    }
+    recordNanos(target().intended(), latencyNanos);
+  }
+
+  private static void record(OneMeasurement m, int latency) {
+    try {
+      m.measure(latency);
+    } catch (ArrayIndexOutOfBoundsException e) {
+      // As in Measurements.measure.
+      System.out.println("ERROR: java.lang.ArrayIndexOutOfBoundsException - ignoring and continuing");
+      e.printStackTrace();
+      e.printStackTrace(System.out);
+    }
+  }
+
+  private static void recordNanos(OneMeasurement m, long latencyNanos) {
+    try {
+      m.measureNanos(latencyNanos);
+    } catch (ArrayIndexOutOfBoundsException e) {
+      // As in Measurements.measure.
+      System.out.println("ERROR: java.lang.ArrayIndexOutOfBoundsException - ignoring and continuing");
+      e.printStackTrace();
+      e.printStackTrace(System.out);
+    }
+  }
+}
@@ -21,8 +21,15 @@ import com.yahoo.ycsb.Status;
 import com.yahoo.ycsb.measurements.exporter.MeasurementsExporter;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Properties;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.HdrHistogram.Histogram;
 
 /**
  * Collects latency measurements, and reports them when requested.
@@ -53,6 +60,9 @@ public class Measurements {
   public static final String MEASUREMENT_TRACK_JVM_PROPERTY = "measurement.trackjvm";
   public static final String MEASUREMENT_TRACK_JVM_PROPERTY_DEFAULT = "false";
 
+  /** The prefix of the measurements taken while warming up. */
+  public static final String WARMUP_PREFIX = "WARMUP-";
+
   static Measurements singleton=null;
   static Properties measurementproperties=null;
 
@@ -75,9 +85,11 @@ public class Measurements {
 
   final ConcurrentHashMap<String,OneMeasurement> _opToMesurementMap;
   final ConcurrentHashMap<String,OneMeasurement> _opToIntendedMesurementMap;
+  final ConcurrentHashMap<String,MeasurementHandle> _handles;
   final MeasurementType _measurementType;
   final int _measurementInterval;
   private Properties _props;
+  private volatile boolean _warmingUp = false;
 
   /**
    * Create a new object with the specified properties.
@@ -86,6 +98,7 @@ public class Measurements {
   {
     _opToMesurementMap=new ConcurrentHashMap<String,OneMeasurement>();
     _opToIntendedMesurementMap=new ConcurrentHashMap<String,OneMeasurement>();
+    _handles=new ConcurrentHashMap<String,MeasurementHandle>();
 
     _props=props;
 
@@ -192,6 +205,41 @@ public class Measurements {
     return tlIntendedStartTime.get().startTime();
   }
 
+  /**
+   * While warming up, all measurements and return codes are recorded under
+   * {@link #WARMUP_PREFIX} names instead, keeping the regular ones for the
+   * steady state.
+   */
+  public void setWarmingUp(boolean warmingUp)
+  {
+    _warmingUp=warmingUp;
+  }
+
+  boolean isWarmingUp()
+  {
+    return _warmingUp;
+  }
+
+  /**
+   * Get a handle to record the measurements and return codes of operation
+   * with, which callers on a hot path should keep instead of passing the
+   * name on every call.
+   */
+  public MeasurementHandle handle(String operation)
+  {
+    MeasurementHandle h=_handles.get(operation);
+    if (h == null)
+    {
+      h=new MeasurementHandle(this, operation);
+      MeasurementHandle oldH=_handles.putIfAbsent(operation, h);
+      if (oldH != null)
+      {
+        h=oldH;
+      }
+    }
+    return h;
+  }
+
   /**
    * Report a single value of a single metric. E.g. for read latency, operation="READ" and latency is the measured
    * value.
@@ -200,6 +248,8 @@ public class Measurements {
   {
     if(_measurementInterval==1)
       return;
+    if(_warmingUp)
+      operation=WARMUP_PREFIX+operation;
     try
     {
       OneMeasurement m = getOpMeasurement(operation);
@@ -222,6 +272,8 @@ public class Measurements {
   {
     if(_measurementInterval==0)
       return;
+    if(_warmingUp)
+      operation=WARMUP_PREFIX+operation;
     try
     {
       OneMeasurement m = getOpIntendedMeasurement(operation);
@@ -236,7 +288,25 @@ public class Measurements {
     }
   }
 
-  private OneMeasurement getOpMeasurement(String operation) {
+  /**
+   * Report a latency in nanoseconds, for measurements that keep more than
+   * microsecond resolution or range. See {@link #measure(String, int)}.
+   */
+  public void measureNanos(String operation, long latencyNanos)
+  {
+    handle(operation).measureNanos(latencyNanos);
+  }
+
+  /**
+   * Report an intended latency in nanoseconds. See
+   * {@link #measureIntended(String, int)}.
+   */
+  public void measureIntendedNanos(String operation, long latencyNanos)
+  {
+    handle(operation).measureIntendedNanos(latencyNanos);
+  }
+
+  OneMeasurement getOpMeasurement(String operation) {
     OneMeasurement m = _opToMesurementMap.get(operation);
     if(m == null)
     {
@@ -250,7 +320,7 @@ public class Measurements {
     return m;
   }
 
-  private OneMeasurement getOpIntendedMeasurement(String operation) {
+  OneMeasurement getOpIntendedMeasurement(String operation) {
     OneMeasurement m = _opToIntendedMesurementMap.get(operation);
     if(m == null)
     {
@@ -268,8 +338,10 @@ public class Measurements {
   /**
    * Report a return code for a single DB operation.
    */
-  public void reportStatus(final String operation, final Status status)
+  public void reportStatus(String operation, final Status status)
   {
+    if(_warmingUp)
+      operation=WARMUP_PREFIX+operation;
     OneMeasurement m = _measurementInterval==1 ?
           getOpIntendedMeasurement(operation) :
           getOpMeasurement(operation);
@@ -294,6 +366,118 @@ public class Measurements {
     }
   }
 
+  /**
+   * Take the interval histograms of all hdrhistogram measurements that saw
+   * values since the last call, by measurement name. Used by a coordinated
+   * worker, which must then be the only one taking intervals.
+   */
+  public synchronized Map<String, Histogram> getIntervalHistograms()
+  {
+    Map<String, Histogram> histograms=new HashMap<String, Histogram>();
+    for (OneMeasurement m : allMeasurements())
+    {
+      if (m instanceof OneMeasurementHdrHistogram)
+      {
+        Histogram interval=((OneMeasurementHdrHistogram) m).getIntervalHistogram();
+        if (interval.getTotalCount() > 0)
+        {
+          histograms.put(m.getName(), interval);
+        }
+      }
+    }
+    return histograms;
+  }
+
+  /**
+   * The latency of all DB operations in the last status interval, from the
+   * intended measurements if they are taken. Only measurements with return
+   * codes count, leaving out JVM stats and cleanup, and so do the warmup
+   * ones.
+   *
+   * @return the combined histogram, or null if there are no hdrhistogram
+   *         measurements.
+   */
+  public Histogram getLastIntervalHistogram()
+  {
+    Histogram combined=null;
+    Map<String,OneMeasurement> latencies=_measurementInterval==0 ? _opToMesurementMap : _opToIntendedMesurementMap;
+    for (Map.Entry<String,OneMeasurement> entry : latencies.entrySet())
+    {
+      // With both intervals, return codes are counted on the op measurements.
+      OneMeasurement statuses=_measurementInterval==2 ? _opToMesurementMap.get(entry.getKey()) : entry.getValue();
+      if (!(entry.getValue() instanceof OneMeasurementHdrHistogram) || statuses == null
+          || statuses.getStatusCounts().isEmpty() || entry.getKey().startsWith(WARMUP_PREFIX))
+      {
+        continue;
+      }
+      Histogram last=((OneMeasurementHdrHistogram) entry.getValue()).getLastIntervalHistogram();
+      if (last == null)
+      {
+        continue;
+      }
+      if (combined == null)
+      {
+        combined=last.copy();
+        combined.setAutoResize(true);
+      }
+      else
+      {
+        combined.add(last);
+      }
+    }
+    return combined;
+  }
+
+  /**
+   * @return the return code counts of all measurements, by measurement name.
+   */
+  public Map<String, Map<Status, Long>> getStatusCounts()
+  {
+    Map<String, Map<Status, Long>> counts=new HashMap<String, Map<Status, Long>>();
+    for (OneMeasurement m : allMeasurements())
+    {
+      Map<Status, Long> measurementCounts=new HashMap<Status, Long>();
+      for (Map.Entry<Status, AtomicLong> entry : m.getStatusCounts().entrySet())
+      {
+        measurementCounts.put(entry.getKey(), entry.getValue().get());
+      }
+      if (!measurementCounts.isEmpty())
+      {
+        counts.put(m.getName(), measurementCounts);
+      }
+    }
+    return counts;
+  }
+
+  /**
+   * Add a histogram measured by another process to the named measurement,
+   * which must be an hdrhistogram.
+   */
+  public void merge(String name, Histogram histogram)
+  {
+    OneMeasurement m=getOpMeasurement(name);
+    if (!(m instanceof OneMeasurementHdrHistogram))
+    {
+      throw new IllegalStateException("Only "+MEASUREMENT_TYPE_PROPERTY+"=hdrhistogram measurements can be merged");
+    }
+    ((OneMeasurementHdrHistogram) m).add(histogram);
+  }
+
+  /**
+   * Add return codes counted by another process to the named measurement.
+   */
+  public void mergeStatusCount(String name, Status status, long count)
+  {
+    getOpMeasurement(name).addStatusCount(status, count);
+  }
+
+  private Iterable<OneMeasurement> allMeasurements()
+  {
+    List<OneMeasurement> all=new ArrayList<OneMeasurement>(_opToMesurementMap.values());
+    all.addAll(_opToIntendedMesurementMap.values());
+    return all;
+  }
+
   /**
    * Return a one line summary of the measurements.
    */
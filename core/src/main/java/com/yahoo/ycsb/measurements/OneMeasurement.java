@@ -23,7 +23,7 @@ import com.yahoo.ycsb.measurements.exporter.MeasurementsExporter;
 import java.io.IOException;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * A single measured metric (such as READ LATENCY)
@@ -31,7 +31,7 @@ import java.util.concurrent.atomic.AtomicInteger;
 public abstract class OneMeasurement {
 
   private final String _name;
-  private  final ConcurrentHashMap<Status, AtomicInteger> _returncodes;
+  private  final ConcurrentHashMap<Status, AtomicLong> _returncodes;
 
   public String getName() {
     return _name;
@@ -42,39 +42,66 @@ public abstract class OneMeasurement {
    */
   public OneMeasurement(String _name) {
     this._name = _name;
-    this._returncodes = new ConcurrentHashMap<Status, AtomicInteger>();
+    this._returncodes = new ConcurrentHashMap<Status, AtomicLong>();
   }
 
   public abstract void measure(int latency);
 
+  /**
+   * Measure a latency given in nanoseconds. Measurements kept in
+   * microseconds, by default, get it truncated to microseconds and capped
+   * at Integer.MAX_VALUE rather than overflowing.
+   */
+  public void measureNanos(long latencyNanos) {
+    measure(toMicros(latencyNanos));
+  }
+
+  static int toMicros(long nanos) {
+    return (int) Math.min(Integer.MAX_VALUE, nanos / 1000);
+  }
+
   public abstract String getSummary();
 
   /**
    * No need for synchronization, using CHM to deal with that
    */
   public void reportStatus(Status status) {
-    AtomicInteger counter = _returncodes.get(status);
+    addStatusCount(status, 1);
+  }
+
+  /**
+   * Export the current measurements to a suitable format.
+   *
+   * @param exporter Exporter representing the type of format to write to.
+   * @throws IOException Thrown if the export failed.
+   */
+  public abstract void exportMeasurements(MeasurementsExporter exporter) throws IOException;
+
+  /**
+   * Add count occurrences of status, such as those counted by another process.
+   */
+  void addStatusCount(Status status, long count) {
+    AtomicLong counter = _returncodes.get(status);
 
     if (counter == null) {
-      AtomicInteger other = _returncodes.putIfAbsent(status, counter = new AtomicInteger());
+      AtomicLong other = _returncodes.putIfAbsent(status, counter = new AtomicLong());
       if (other != null) {
         counter = other;
       }
     }
 
-    counter.incrementAndGet();
+    counter.addAndGet(count);
   }
 
   /**
-   * Export the current measurements to a suitable format.
-   *
-   * @param exporter Exporter representing the type of format to write to.
-   * @throws IOException Thrown if the export failed.
+   * @return the number of occurrences of each return code so far.
    */
-  public abstract void exportMeasurements(MeasurementsExporter exporter) throws IOException;
+  Map<Status, AtomicLong> getStatusCounts() {
+    return _returncodes;
+  }
 
   protected final void exportStatusCounts(MeasurementsExporter exporter) throws IOException {
-    for (Map.Entry<Status, AtomicInteger> entry : _returncodes.entrySet()) {
+    for (Map.Entry<Status, AtomicLong> entry : _returncodes.entrySet()) {
       exporter.write(getName(), "Return=" + entry.getKey().getName(), entry.getValue().get());
     }
   }
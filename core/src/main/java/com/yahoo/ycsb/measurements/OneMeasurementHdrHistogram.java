@@ -24,11 +24,13 @@ import java.io.IOException;
 import java.io.PrintStream;
 import java.text.DecimalFormat;
 import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import org.HdrHistogram.Histogram;
 import org.HdrHistogram.HistogramLogWriter;
 import org.HdrHistogram.Recorder;
+import org.HdrHistogram.SingleWriterRecorder;
 
 import com.yahoo.ycsb.measurements.exporter.MeasurementsExporter;
 
@@ -36,6 +38,12 @@ import com.yahoo.ycsb.measurements.exporter.MeasurementsExporter;
  * Take measurements and maintain a HdrHistogram of a given metric, such as READ
  * LATENCY.
  *
+ * By default all threads record into one {@link Recorder}. With
+ * hdrhistogram.recorder=perthread, each thread records into its own
+ * {@link SingleWriterRecorder} instead, and their intervals are merged when
+ * the interval histogram is taken, so that threads recording the same
+ * operation do not write to shared memory.
+ *
  * @author nitsanw
  *
  */
@@ -45,8 +53,13 @@ public class OneMeasurementHdrHistogram extends OneMeasurement {
   final PrintStream log;
   final HistogramLogWriter histogramLogWriter;
 
+  /** The shared recorder, or null with per-thread recorders. */
   final Recorder histogram;
+  /** The per-thread recorders, or null with a shared one. */
+  private final ThreadLocal<ThreadRecorder> threadRecorder;
+  private final List<ThreadRecorder> threadRecorders;
   Histogram totalHistogram;
+  volatile Histogram lastIntervalHistogram;
 
   /**
    * The name of the property for deciding what percentile values to output.
@@ -58,11 +71,107 @@ public class OneMeasurementHdrHistogram extends OneMeasurement {
    */
   public static final String PERCENTILES_PROPERTY_DEFAULT = "95,99";
 
+  /**
+   * The unit latencies are recorded in: "us" (default) or "ns". Latencies
+   * reported in microseconds are scaled up with ns.
+   */
+  public static final String UNIT_PROPERTY = "hdrhistogram.unit";
+
+  /**
+   * The default recording unit.
+   */
+  public static final String UNIT_PROPERTY_DEFAULT = "us";
+
+  /**
+   * The unit latencies are exported in: "us" or "ns". Defaults to the
+   * recording unit.
+   */
+  public static final String REPORT_UNIT_PROPERTY = "hdrhistogram.report.unit";
+
+  /**
+   * The number of significant decimal digits the histogram keeps, 0 to 5.
+   */
+  public static final String PRECISION_PROPERTY = "hdrhistogram.precision";
+
+  /**
+   * The default precision.
+   */
+  public static final String PRECISION_PROPERTY_DEFAULT = "3";
+
+  /**
+   * The highest latency tracked, in the recording unit; higher ones are
+   * recorded as this value. 0 (default) lets the histogram grow to fit any
+   * latency.
+   */
+  public static final String HIGHEST_PROPERTY = "hdrhistogram.highest";
+
+  /**
+   * The default highest latency, which means no limit.
+   */
+  public static final String HIGHEST_PROPERTY_DEFAULT = "0";
+
+  /**
+   * How threads record: into one "shared" (default) recorder, or each into
+   * its own ("perthread"). Per-thread recorders keep a histogram pair per
+   * thread, which suits a few hundred client threads rather than many
+   * thousands of virtual ones.
+   */
+  public static final String RECORDER_PROPERTY = "hdrhistogram.recorder";
+
+  /**
+   * The default recorder mode.
+   */
+  public static final String RECORDER_PROPERTY_DEFAULT = "shared";
+
   List<Integer> percentiles;
 
+  /** The nanoseconds in one recorded unit, 1 or 1000. */
+  final long nanosPerUnit;
+  /** What a recorded value is multiplied by to export it in the report unit. */
+  private final double reportScale;
+  private final String reportUnit;
+  private final long highest;
+  private final int precision;
+
+  /**
+   * The recorder of one thread, and the histogram its last interval was
+   * taken into, which is reused for the next.
+   */
+  private static final class ThreadRecorder {
+    private final SingleWriterRecorder recorder;
+    private Histogram interval;
+
+    ThreadRecorder(SingleWriterRecorder recorder) {
+      this.recorder = recorder;
+    }
+  }
+
+  /**
+   * @return the nanoseconds in the unit hdrhistogram measurements are
+   *         recorded in with props.
+   */
+  public static long nanosPerUnit(Properties props) {
+    return nanosPerUnit(props.getProperty(UNIT_PROPERTY, UNIT_PROPERTY_DEFAULT));
+  }
+
+  private static long nanosPerUnit(String unit) {
+    if (unit.equals("us")) {
+      return 1000;
+    } else if (unit.equals("ns")) {
+      return 1;
+    }
+    throw new IllegalArgumentException("unknown hdrhistogram unit " + unit + ", must be us or ns");
+  }
+
   public OneMeasurementHdrHistogram(String name, Properties props) {
     super(name);
     percentiles = getPercentileValues(props.getProperty(PERCENTILES_PROPERTY, PERCENTILES_PROPERTY_DEFAULT));
+    String unit = props.getProperty(UNIT_PROPERTY, UNIT_PROPERTY_DEFAULT);
+    nanosPerUnit = nanosPerUnit(unit);
+    reportUnit = props.getProperty(REPORT_UNIT_PROPERTY, unit);
+    reportScale = (double) nanosPerUnit / nanosPerUnit(reportUnit);
+    precision = Integer.parseInt(props.getProperty(PRECISION_PROPERTY, PRECISION_PROPERTY_DEFAULT));
+    highest = Long.parseLong(props.getProperty(HIGHEST_PROPERTY, HIGHEST_PROPERTY_DEFAULT));
     boolean shouldLog = Boolean.parseBoolean(props.getProperty("hdrhistogram.fileoutput", "false"));
     if (!shouldLog) {
       log = null;
@@ -82,7 +191,26 @@ public class OneMeasurementHdrHistogram extends OneMeasurement {
       histogramLogWriter.setBaseTime(now);
       histogramLogWriter.outputLegend();
     }
-    histogram = new Recorder(3);
+    String recorder = props.getProperty(RECORDER_PROPERTY, RECORDER_PROPERTY_DEFAULT);
+    if (recorder.equals("shared")) {
+      histogram = highest > 0 ? new Recorder(highest, precision) : new Recorder(precision);
+      threadRecorder = null;
+      threadRecorders = null;
+    } else if (recorder.equals("perthread")) {
+      histogram = null;
+      threadRecorders = new CopyOnWriteArrayList<ThreadRecorder>();
+      threadRecorder = new ThreadLocal<ThreadRecorder>() {
+        @Override
+        protected ThreadRecorder initialValue() {
+          ThreadRecorder r = new ThreadRecorder(highest > 0
+              ? new SingleWriterRecorder(highest, precision) : new SingleWriterRecorder(precision));
+          threadRecorders.add(r);
+          return r;
+        }
+      };
+    } else {
+      throw new IllegalArgumentException("unknown " + RECORDER_PROPERTY + "=" + recorder);
+    }
   }
 
   /**
@@ -92,7 +220,29 @@ public class OneMeasurementHdrHistogram extends OneMeasurement {
     * @see com.yahoo.ycsb.OneMeasurement#measure(int)
     */
   public void measure(int latencyInMicros) {
-    histogram.recordValue(latencyInMicros);
+    record(latencyInMicros * (1000 / nanosPerUnit));
+  }
+
+  /**
+    * Records the latency in the recording unit, without truncating
+    * nanoseconds when that is ns.
+    *
+    * @see com.yahoo.ycsb.measurements.OneMeasurement#measureNanos(long)
+    */
+  @Override
+  public void measureNanos(long latencyNanos) {
+    record(latencyNanos / nanosPerUnit);
+  }
+
+  private void record(long value) {
+    if (highest > 0) {
+      value = Math.min(value, highest);
+    }
+    if (histogram != null) {
+      histogram.recordValue(value);
+    } else {
+      threadRecorder.get().recorder.recordValue(value);
+    }
   }
 
   /**
@@ -109,13 +259,15 @@ public class OneMeasurementHdrHistogram extends OneMeasurement {
       // we can close now
       log.close();
     }
+    String unit = "(" + reportUnit + ")";
     exporter.write(getName(), "Operations", totalHistogram.getTotalCount());
-    exporter.write(getName(), "AverageLatency(us)", totalHistogram.getMean());
-    exporter.write(getName(), "MinLatency(us)", totalHistogram.getMinValue());
-    exporter.write(getName(), "MaxLatency(us)", totalHistogram.getMaxValue());
+    exporter.write(getName(), "AverageLatency" + unit, totalHistogram.getMean() * reportScale);
+    exporter.write(getName(), "MinLatency" + unit, totalHistogram.getMinValue() * reportScale);
+    exporter.write(getName(), "MaxLatency" + unit, totalHistogram.getMaxValue() * reportScale);
 
     for (Integer percentile: percentiles) {
-      exporter.write(getName(), ordinal(percentile) + "PercentileLatency(us)", totalHistogram.getValueAtPercentile(percentile));
+      exporter.write(getName(), ordinal(percentile) + "PercentileLatency" + unit,
+          totalHistogram.getValueAtPercentile(percentile) * reportScale);
     }
     
     exportStatusCounts(exporter);
@@ -138,15 +290,65 @@ public class OneMeasurementHdrHistogram extends OneMeasurement {
 
 		DecimalFormat d = new DecimalFormat("#.##");
 		return "[" + getName() + ": Count=" + intervalHistogram.getTotalCount() + ", Max="
-				+ intervalHistogram.getMaxValue() + ", Min=" + intervalHistogram.getMinValue() + ", Avg="
-				+ d.format(intervalHistogram.getMean()) + ", 90=" + d.format(intervalHistogram.getValueAtPercentile(90))
-				+ ", 99=" + d.format(intervalHistogram.getValueAtPercentile(99)) + ", 99.9="
-				+ d.format(intervalHistogram.getValueAtPercentile(99.9)) + ", 99.99="
-				+ d.format(intervalHistogram.getValueAtPercentile(99.99)) + "]";
+				+ d.format(intervalHistogram.getMaxValue() * reportScale) + ", Min="
+				+ d.format(intervalHistogram.getMinValue() * reportScale) + ", Avg="
+				+ d.format(intervalHistogram.getMean() * reportScale) + ", 90="
+				+ d.format(intervalHistogram.getValueAtPercentile(90) * reportScale)
+				+ ", 99=" + d.format(intervalHistogram.getValueAtPercentile(99) * reportScale) + ", 99.9="
+				+ d.format(intervalHistogram.getValueAtPercentile(99.9) * reportScale) + ", 99.99="
+				+ d.format(intervalHistogram.getValueAtPercentile(99.99) * reportScale) + "]";
+	}
+
+	/**
+	 * Take the histogram of the values measured since the last interval, adding
+	 * it to the total as usual. Used to ship intervals to a coordinating process.
+	 */
+	public Histogram getIntervalHistogram() {
+		return getIntervalHistogramAndAccumulate();
+	}
+
+	/**
+	 * @return the histogram of the last interval taken, or null if none was.
+	 */
+	public Histogram getLastIntervalHistogram() {
+		return lastIntervalHistogram;
 	}
 
-	private Histogram getIntervalHistogramAndAccumulate() {
-		Histogram intervalHistogram = histogram.getIntervalHistogram();
+	/**
+	 * Add a histogram measured elsewhere, such as by another process, to the
+	 * total.
+	 */
+	public synchronized void add(Histogram other) {
+		if (totalHistogram == null) {
+			totalHistogram = other.copy();
+		} else {
+			totalHistogram.add(other);
+		}
+	}
+
+	private synchronized Histogram getIntervalHistogramAndAccumulate() {
+		Histogram intervalHistogram;
+		if (histogram != null) {
+			intervalHistogram = histogram.getIntervalHistogram();
+		} else {
+			intervalHistogram = highest > 0 ? new Histogram(highest, precision) : new Histogram(precision);
+			intervalHistogram.setStartTimeStamp(Long.MAX_VALUE);
+			for (ThreadRecorder r : threadRecorders) {
+				r.interval = r.interval == null ? r.recorder.getIntervalHistogram()
+						: r.recorder.getIntervalHistogram(r.interval);
+				intervalHistogram.add(r.interval);
+				intervalHistogram.setStartTimeStamp(
+						Math.min(intervalHistogram.getStartTimeStamp(), r.interval.getStartTimeStamp()));
+				intervalHistogram.setEndTimeStamp(
+						Math.max(intervalHistogram.getEndTimeStamp(), r.interval.getEndTimeStamp()));
+			}
+			if (threadRecorders.isEmpty()) {
+				long now = System.currentTimeMillis();
+				intervalHistogram.setStartTimeStamp(now);
+				intervalHistogram.setEndTimeStamp(now);
+			}
+		}
+		lastIntervalHistogram = intervalHistogram;
 		// add this to the total time histogram.
 		if (totalHistogram == null) {
 			totalHistogram = intervalHistogram;
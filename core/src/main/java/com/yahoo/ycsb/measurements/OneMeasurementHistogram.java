@@ -21,8 +21,7 @@ import java.io.IOException;
 import java.text.DecimalFormat;
 import java.util.Properties;
 
-import java.util.Map;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
 
 import com.yahoo.ycsb.measurements.exporter.MeasurementsExporter;
 
@@ -30,6 +29,11 @@ import com.yahoo.ycsb.measurements.exporter.MeasurementsExporter;
 /**
  * Take measurements and maintain a histogram of a given metric, such as READ LATENCY.
  *
+ * Measurements are spread over a number of stripes by thread, each with its
+ * own buckets and sums updated with atomic instructions, so that many
+ * threads recording the same operation do not serialize on one lock. The
+ * stripes are added up when the histogram is exported or summarized.
+ *
  * @author cooperb
  *
  */
@@ -38,105 +42,130 @@ public class OneMeasurementHistogram extends OneMeasurement
   public static final String BUCKETS="histogram.buckets";
   public static final String BUCKETS_DEFAULT="1000";
 
-
   /**
-   * Specify the range of latencies to track in the histogram.
+   * The number of stripes to spread measurements over, rounded up to a
+   * power of two. Defaults to the number of processors.
    */
-  int _buckets;
+  public static final String STRIPES="histogram.stripes";
+
+  // Indexes into the sums of a stripe. The squared latencies are kept as
+  // the bits of a double.
+  private static final int OPERATIONS=0;
+  private static final int TOTAL_LATENCY=1;
+  private static final int TOTAL_SQUARED_LATENCY=2;
+  private static final int MIN=3;
+  private static final int MAX=4;
+  // Pads the sums of a stripe to two cache lines, so that stripes do not
+  // share one.
+  private static final int SUMS_LENGTH=16;
 
   /**
-     * Groups operations in discrete blocks of 1ms width.
-     */
-  int[] histogram;
-  
-  /**
-   * Counts all operations outside the histogram's range.
-   */
-  int histogramoverflow;
-  
-  /**
-   * The total number of reported operations.
+   * Specify the range of latencies to track in the histogram.
    */
-  int operations;
-  
+  final int _buckets;
+
   /**
-   * The sum of each latency measurement over all operations.
-   * Calculated in ms.
+   * Groups operations in discrete blocks of 1ms width, one array per stripe.
+   * The last element counts all operations outside the histogram's range.
    */
-  long totallatency;
+  private final AtomicLongArray[] histograms;
 
   /**
-   * The sum of each latency measurement squared over all operations. 
-   * Used to calculate variance of latency.
-   * Calculated in ms. 
+   * The number of operations, the sum of their latencies and of the
+   * squares of their latencies (in us), and the minimum and maximum
+   * latency, one array per stripe.
    */
-  double totalsquaredlatency;
-  
-  //keep a windowed version of these stats for printing status
-  int windowoperations;
-  long windowtotallatency;
+  private final AtomicLongArray[] sums;
+
+  //the operations and total latency at the start of the status window
+  private long windowstartoperations;
+  private long windowstarttotallatency;
 
-  int min;
-  int max;
+  private final int stripeMask;
 
   public OneMeasurementHistogram(String name, Properties props)
   {
     super(name);
     _buckets=Integer.parseInt(props.getProperty(BUCKETS, BUCKETS_DEFAULT));
-    histogram=new int[_buckets];
-    histogramoverflow=0;
-    operations=0;
-    totallatency=0;
-    totalsquaredlatency=0;
-    windowoperations=0;
-    windowtotallatency=0;
-    min=-1;
-    max=-1;
+    int stripes=Integer.parseInt(props.getProperty(STRIPES,
+        String.valueOf(Runtime.getRuntime().availableProcessors())));
+    stripes=Integer.highestOneBit(Math.max(1, stripes)*2-1);
+    stripeMask=stripes-1;
+    histograms=new AtomicLongArray[stripes];
+    sums=new AtomicLongArray[stripes];
+    for (int i=0; i<stripes; i++)
+    {
+      histograms[i]=new AtomicLongArray(_buckets+1);
+      sums[i]=new AtomicLongArray(SUMS_LENGTH);
+      sums[i].set(MIN, Long.MAX_VALUE);
+      sums[i].set(MAX, Long.MIN_VALUE);
+    }
   }
 
   /* (non-Javadoc)
    * @see com.yahoo.ycsb.OneMeasurement#measure(int)
    */
-  public synchronized void measure(int latency)
+  public void measure(int latency)
   {
-      //latency reported in us and collected in bucket by ms.
-    if (latency/1000>=_buckets)
-    {
-      histogramoverflow++;
-    }
-    else
+    int stripe=(int)Thread.currentThread().getId() & stripeMask;
+
+    //latency reported in us and collected in bucket by ms.
+    histograms[stripe].incrementAndGet(Math.min(latency/1000, _buckets));
+
+    AtomicLongArray s=sums[stripe];
+    s.incrementAndGet(OPERATIONS);
+    s.addAndGet(TOTAL_LATENCY, latency);
+    double squared=((double)latency) * ((double)latency);
+    long bits;
+    do
     {
-      histogram[latency/1000]++;
-    }
-    operations++;
-    totallatency += latency;
-    totalsquaredlatency += ((double)latency) * ((double)latency);
-    windowoperations++;
-    windowtotallatency += latency;
+      bits=s.get(TOTAL_SQUARED_LATENCY);
+    } while (!s.compareAndSet(TOTAL_SQUARED_LATENCY, bits,
+        Double.doubleToRawLongBits(Double.longBitsToDouble(bits)+squared)));
 
-    if ( (min<0) || (latency<min) )
+    long current;
+    while (latency<(current=s.get(MIN)) && !s.compareAndSet(MIN, current, latency))
     {
-      min=latency;
+      // Lost a race with another thread of this stripe; try again.
     }
-
-    if ( (max<0) || (latency>max) )
+    while (latency>(current=s.get(MAX)) && !s.compareAndSet(MAX, current, latency))
     {
-      max=latency;
+      // Lost a race with another thread of this stripe; try again.
     }
   }
 
   @Override
   public void exportMeasurements(MeasurementsExporter exporter) throws IOException
   {
+    long[] histogram=new long[_buckets+1];
+    long operations=0;
+    long totallatency=0;
+    double totalsquaredlatency=0;
+    long min=Long.MAX_VALUE;
+    long max=Long.MIN_VALUE;
+    for (int stripe=0; stripe<sums.length; stripe++)
+    {
+      for (int i=0; i<=_buckets; i++)
+      {
+        histogram[i]+=histograms[stripe].get(i);
+      }
+      AtomicLongArray s=sums[stripe];
+      operations+=s.get(OPERATIONS);
+      totallatency+=s.get(TOTAL_LATENCY);
+      totalsquaredlatency+=Double.longBitsToDouble(s.get(TOTAL_SQUARED_LATENCY));
+      min=Math.min(min, s.get(MIN));
+      max=Math.max(max, s.get(MAX));
+    }
+
     double mean = totallatency/((double)operations);
     double variance = totalsquaredlatency/((double)operations) - (mean * mean);
-    exporter.write(getName(), "Operations", operations);
+    writeCount(exporter, "Operations", operations);
     exporter.write(getName(), "AverageLatency(us)", mean);
     exporter.write(getName(), "LatencyVariance(us)", variance);
-    exporter.write(getName(), "MinLatency(us)", min);
-    exporter.write(getName(), "MaxLatency(us)", max);
+    exporter.write(getName(), "MinLatency(us)", operations==0 ? -1 : (int)min);
+    exporter.write(getName(), "MaxLatency(us)", operations==0 ? -1 : (int)max);
 
-    int opcounter=0;
+    long opcounter=0;
     boolean done95th=false;
     for (int i=0; i<_buckets; i++)
     {
@@ -157,21 +186,46 @@ public class OneMeasurementHistogram extends OneMeasurement
 
     for (int i=0; i<_buckets; i++)
     {
-      exporter.write(getName(), Integer.toString(i), histogram[i]);
+      writeCount(exporter, Integer.toString(i), histogram[i]);
+    }
+    writeCount(exporter, ">"+_buckets, histogram[_buckets]);
+  }
+
+  /**
+   * Export a count as an int, as before the stripes summed into longs, unless
+   * it no longer fits into one.
+   */
+  private void writeCount(MeasurementsExporter exporter, String measurement, long count) throws IOException
+  {
+    if (count <= Integer.MAX_VALUE)
+    {
+      exporter.write(getName(), measurement, (int) count);
+    }
+    else
+    {
+      exporter.write(getName(), measurement, (double) count);
     }
-    exporter.write(getName(), ">"+_buckets, histogramoverflow);
   }
 
   @Override
-  public String getSummary() {
+  public synchronized String getSummary() {
+    long operations=0;
+    long totallatency=0;
+    for (AtomicLongArray s : sums)
+    {
+      operations+=s.get(OPERATIONS);
+      totallatency+=s.get(TOTAL_LATENCY);
+    }
+    long windowoperations=operations-windowstartoperations;
+    long windowtotallatency=totallatency-windowstarttotallatency;
     if (windowoperations==0)
     {
       return "";
     }
+    windowstartoperations=operations;
+    windowstarttotallatency=totallatency;
     DecimalFormat d = new DecimalFormat("#.##");
     double report=((double)windowtotallatency)/((double)windowoperations);
-    windowtotallatency=0;
-    windowoperations=0;
     return "["+getName()+" AverageLatency(us)="+d.format(report)+"]";
   }
 }
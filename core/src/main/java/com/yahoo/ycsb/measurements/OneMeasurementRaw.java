@@ -17,59 +17,35 @@
 
 package com.yahoo.ycsb.measurements;
 
-import java.io.FileNotFoundException;
+import java.io.File;
+import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
 import java.util.Properties;
-import java.util.LinkedList;
-import java.util.Collections;
-import java.util.Comparator;
+
+import org.HdrHistogram.Histogram;
+
 import com.yahoo.ycsb.measurements.exporter.MeasurementsExporter;
 
 /**
  * Record a series of measurements as raw data points without down sampling,
  * optionally write to an output file when configured.
  *
+ * Data points are collected in fixed size buffers, spread over a number of
+ * stripes by thread, and written out as CSV whenever a buffer fills up, so
+ * memory use does not grow with the length of the run. Without an output
+ * file, they are written to a temporary file that is copied to stdout on
+ * export. The summary percentiles come from a histogram of the latencies
+ * rather than from sorting all data points.
+ *
  * @author stfeng
  *
  */
 public class OneMeasurementRaw extends OneMeasurement {
-  /**
-   * One raw data point, two fields: timestamp (ms) when the datapoint is
-   * inserted, and the value.
-   */
-  class RawDataPoint {
-    private final long timestamp;
-    private final int value;
-
-    public RawDataPoint(int value) {
-      this.timestamp = System.currentTimeMillis();
-      this.value = value;
-    }
-
-    public long timeStamp() {
-      return timestamp;
-    }
-
-    public int value() {
-      return value;
-    }
-  }
-
-  class RawDataPointComparator implements Comparator<RawDataPoint> {
-    @Override
-    public int compare(RawDataPoint p1, RawDataPoint p2){
-      if (p1.value() < p2.value()){
-        return -1;
-      } else if (p1.value() == p2.value()) {
-        return 0;
-      } else {
-        return 1;
-      }
-    }
-  }
-
   /**
    * Optionally, user can configure an output file to save the raw data points.
    * Default is none, raw results will be written to stdout.
@@ -81,130 +57,258 @@ public class OneMeasurementRaw extends OneMeasurement {
   /**
    * Optionally, user can request to not output summary stats. This is useful
    * if the user chains the raw measurement type behind the HdrHistogram type
-   * which already outputs summary stats. But even in that case, the user may
-   * still want this class to compute summary stats for them, especially if
-   * they want accurate computation of percentiles (because percentils computed
-   * by histogram classes are still approximations).
+   * which already outputs summary stats.
    */
   public static final String NO_SUMMARY_STATS = "measurement.raw.no_summary";
   public static final String NO_SUMMARY_STATS_DEFAULT = "false";
 
-  private String outputFilePath = "";
-  private final PrintStream outputStream;
+  /**
+   * The number of data points each stripe buffers before writing them out.
+   */
+  public static final String BUFFER_SIZE = "measurement.raw.buffer_size";
+  public static final String BUFFER_SIZE_DEFAULT = "4096";
+
+  /** The size of the buffer data points are formatted into. */
+  private static final int FORMAT_BUFFER_SIZE = 16 * 1024;
+
+  private static final double[] PERCENTILES = {1, 5, 50, 90, 95, 99, 99.9, 99.99};
+  private static final String[] PERCENTILE_NAMES = {"p1", "p5", "p50", "p90", "p95", "p99", "p99.9", "p99.99"};
+
+  private final File outputFile;
+  private final boolean toStdout;
+  private final FileChannel outputChannel;
+  private final byte[] nameBytes;
 
   private boolean noSummaryStats = false;
 
-  private LinkedList<RawDataPoint> measurements;
-  private long totalLatency = 0;
+  private final Stripe[] stripes;
+  private final int stripeMask;
 
-  // A window of stats to print summary for at the next getSummary() call.
-  // It's supposed to be a one line summary, so we will just print count and
-  // average.
-  private int windowOperations = 0;
-  private long windowTotalLatency = 0;
+  /** The first error writing data points out, thrown on export. */
+  private volatile IOException writeError;
 
-  public OneMeasurementRaw(String name, Properties props) {
-    super(name);
+  /**
+   * The data points of the threads that map to one stripe, along with
+   * their totals and a histogram of their latencies.
+   */
+  private final class Stripe {
+    private final long[] timestamps;
+    private final int[] values;
+    private int buffered;
+    private final ByteBuffer formatted = ByteBuffer.allocate(FORMAT_BUFFER_SIZE);
+    private final Histogram histogram = new Histogram(3);
+    private long operations;
+    private long totalLatency;
+    private int min = Integer.MAX_VALUE;
+    private int max = Integer.MIN_VALUE;
+
+    // A window of stats to print summary for at the next getSummary() call.
+    private long windowOperations;
+    private long windowTotalLatency;
+
+    Stripe(int bufferSize) {
+      timestamps = new long[bufferSize];
+      values = new int[bufferSize];
+    }
 
-    outputFilePath = props.getProperty(OUTPUT_FILE_PATH,
-        OUTPUT_FILE_PATH_DEFAULT);
-    if (!outputFilePath.isEmpty()) {
-      System.out.println("Raw data measurement: will output to result file: " +
-          outputFilePath);
+    synchronized void measure(int latency) {
+      operations++;
+      totalLatency += latency;
+      windowOperations++;
+      windowTotalLatency += latency;
+      min = Math.min(min, latency);
+      max = Math.max(max, latency);
+      histogram.recordValue(Math.max(0, latency));
+
+      timestamps[buffered] = System.currentTimeMillis();
+      values[buffered] = latency;
+      if (++buffered == values.length) {
+        flush();
+      }
+    }
 
+    /** Write out the buffered data points as op,timestamp,latency lines. */
+    synchronized void flush() {
       try {
-        outputStream = new PrintStream(
-            new FileOutputStream(outputFilePath, true),
-            true);
-      } catch (FileNotFoundException e) {
-        throw new RuntimeException("Failed to open raw data output file", e);
+        for (int i = 0; i < buffered; i++) {
+          // A name, two numbers of at most 20 characters and separators.
+          if (formatted.remaining() < nameBytes.length + 43) {
+            write(formatted);
+          }
+          formatted.put(nameBytes);
+          formatted.put((byte) ',');
+          putDecimal(formatted, timestamps[i]);
+          formatted.put((byte) ',');
+          putDecimal(formatted, values[i]);
+          formatted.put((byte) '\n');
+        }
+        write(formatted);
+      } catch (IOException e) {
+        if (writeError == null) {
+          writeError = e;
+        }
+        formatted.clear();
       }
+      buffered = 0;
+    }
+  }
 
-    } else{
-      System.out.println("Raw data measurement: will output to stdout.");
-      outputStream = System.out;
+  public OneMeasurementRaw(String name, Properties props) {
+    super(name);
 
+    String outputFilePath = props.getProperty(OUTPUT_FILE_PATH,
+        OUTPUT_FILE_PATH_DEFAULT);
+    try {
+      if (!outputFilePath.isEmpty()) {
+        System.out.println("Raw data measurement: will output to result file: " +
+            outputFilePath);
+        outputFile = new File(outputFilePath);
+        toStdout = false;
+      } else {
+        System.out.println("Raw data measurement: will output to stdout.");
+        outputFile = File.createTempFile("ycsb-raw-", ".csv");
+        outputFile.deleteOnExit();
+        toStdout = true;
+      }
+      // Appending, so that the measurements sharing the file each write
+      // whole buffers at its end.
+      outputChannel = new FileOutputStream(outputFile, true).getChannel();
+    } catch (IOException e) {
+      throw new RuntimeException("Failed to open raw data output file", e);
     }
+    nameBytes = name.getBytes(StandardCharsets.UTF_8);
 
-   noSummaryStats = Boolean.parseBoolean(props.getProperty(NO_SUMMARY_STATS,
+    noSummaryStats = Boolean.parseBoolean(props.getProperty(NO_SUMMARY_STATS,
         NO_SUMMARY_STATS_DEFAULT));
 
-   measurements = new LinkedList<RawDataPoint>();
+    int bufferSize = Integer.parseInt(props.getProperty(BUFFER_SIZE, BUFFER_SIZE_DEFAULT));
+    int count = Integer.highestOneBit(Runtime.getRuntime().availableProcessors() * 2 - 1);
+    stripeMask = count - 1;
+    stripes = new Stripe[count];
+    for (int i = 0; i < count; i++) {
+      stripes[i] = new Stripe(Math.max(1, bufferSize));
+    }
+
+    try {
+      byte[] header = (getName() + " latency raw data: op, timestamp(ms), latency(us)\n")
+          .getBytes(StandardCharsets.UTF_8);
+      ByteBuffer buffer = ByteBuffer.allocate(header.length);
+      buffer.put(header);
+      write(buffer);
+    } catch (IOException e) {
+      throw new RuntimeException("Failed to write to raw data output file", e);
+    }
   }
 
   @Override
-  public synchronized void measure(int latency) {
-    totalLatency += latency;
-    windowTotalLatency += latency;
-    windowOperations++;
+  public void measure(int latency) {
+    stripes[(int) Thread.currentThread().getId() & stripeMask].measure(latency);
+  }
+
+  /** Write out what was put into buffer, and clear it. */
+  private void write(ByteBuffer buffer) throws IOException {
+    buffer.flip();
+    while (buffer.hasRemaining()) {
+      outputChannel.write(buffer);
+    }
+    buffer.clear();
+  }
 
-    measurements.add(new RawDataPoint(latency));
+  /** Append value in decimal, without going through a String. */
+  static void putDecimal(ByteBuffer buffer, long value) {
+    if (value < 0) {
+      buffer.put((byte) '-');
+      if (value == Long.MIN_VALUE) {
+        buffer.put("9223372036854775808".getBytes(StandardCharsets.US_ASCII));
+        return;
+      }
+      value = -value;
+    }
+    int start = buffer.position();
+    do {
+      buffer.put((byte) ('0' + value % 10));
+      value /= 10;
+    } while (value != 0);
+    for (int i = start, j = buffer.position() - 1; i < j; i++, j--) {
+      byte b = buffer.get(i);
+      buffer.put(i, buffer.get(j));
+      buffer.put(j, b);
+    }
   }
 
   @Override
   public void exportMeasurements(MeasurementsExporter exporter)
       throws IOException {
-    // Output raw data points first then print out a summary of percentiles to
-    // stdout.
-
-    outputStream.println(getName() +
-        " latency raw data: op, timestamp(ms), latency(us)");
-    for (RawDataPoint point : measurements) {
-      outputStream.println(
-          String.format("%s,%d,%d", getName(), point.timeStamp(),
-              point.value()));
+    // Output the rest of the raw data points first then print out a summary
+    // of percentiles to stdout.
+
+    Histogram histogram = new Histogram(3);
+    long totalOps = 0;
+    long totalLatency = 0;
+    int min = Integer.MAX_VALUE;
+    int max = Integer.MIN_VALUE;
+    for (Stripe stripe : stripes) {
+      synchronized (stripe) {
+        stripe.flush();
+        histogram.add(stripe.histogram);
+        totalOps += stripe.operations;
+        totalLatency += stripe.totalLatency;
+        min = Math.min(min, stripe.min);
+        max = Math.max(max, stripe.max);
+      }
+    }
+    outputChannel.close();
+    if (toStdout) {
+      System.out.flush();
+      try (FileChannel in = new FileInputStream(outputFile).getChannel()) {
+        long position = 0;
+        long size = in.size();
+        while (position < size) {
+          position += in.transferTo(position, size - position, Channels.newChannel(System.out));
+        }
+      }
+      System.out.flush();
+      outputFile.delete();
     }
-    if (outputStream != System.out) {
-      outputStream.close();
+    if (writeError != null) {
+      throw writeError;
     }
 
-    int totalOps = measurements.size();
     exporter.write(getName(), "Total Operations", totalOps);
     if (totalOps > 0 && !noSummaryStats) {
       exporter.write(getName(),
           "Below is a summary of latency in microseconds:", -1);
       exporter.write(getName(), "Average",
           (double)totalLatency / (double)totalOps);
-
-      Collections.sort(measurements, new RawDataPointComparator());
-
-      exporter.write(getName(), "Min", measurements.get(0).value());
-      exporter.write(
-          getName(), "Max", measurements.get(totalOps - 1).value());
-      exporter.write(
-          getName(), "p1", measurements.get((int)(totalOps*0.01)).value());
-      exporter.write(
-          getName(), "p5", measurements.get((int)(totalOps*0.05)).value());
-      exporter.write(
-          getName(), "p50", measurements.get((int)(totalOps*0.5)).value());
-      exporter.write(
-          getName(), "p90", measurements.get((int)(totalOps*0.9)).value());
-      exporter.write(
-          getName(), "p95", measurements.get((int)(totalOps*0.95)).value());
-      exporter.write(
-          getName(), "p99", measurements.get((int)(totalOps*0.99)).value());
-      exporter.write(getName(), "p99.9",
-          measurements.get((int)(totalOps*0.999)).value());
-      exporter.write(getName(), "p99.99",
-          measurements.get((int)(totalOps*0.9999)).value());
+      exporter.write(getName(), "Min", min);
+      exporter.write(getName(), "Max", max);
+      for (int i = 0; i < PERCENTILES.length; i++) {
+        exporter.write(getName(), PERCENTILE_NAMES[i],
+            (int) Math.min(max, histogram.getValueAtPercentile(PERCENTILES[i])));
+      }
     }
 
     exportStatusCounts(exporter);
   }
 
   @Override
-  public synchronized String getSummary() {
+  public String getSummary() {
+    long windowOperations = 0;
+    long windowTotalLatency = 0;
+    for (Stripe stripe : stripes) {
+      synchronized (stripe) {
+        windowOperations += stripe.windowOperations;
+        windowTotalLatency += stripe.windowTotalLatency;
+        stripe.windowOperations = 0;
+        stripe.windowTotalLatency = 0;
+      }
+    }
     if (windowOperations == 0) {
       return "";
     }
 
-    String toReturn = String.format("%s count: %d, average latency(us): %.2f",
+    return String.format("%s count: %d, average latency(us): %.2f",
         getName(), windowOperations,
         (double)windowTotalLatency / (double)windowOperations);
-
-    windowTotalLatency=0;
-    windowOperations=0;
-
-    return toReturn;
   }
 }
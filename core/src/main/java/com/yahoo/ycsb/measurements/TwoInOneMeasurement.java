@@ -60,6 +60,12 @@ public class TwoInOneMeasurement extends OneMeasurement {
     thing2.measure(latencyInMicros);
   }
 
+  @Override
+  public void measureNanos(long latencyNanos) {
+    thing1.measureNanos(latencyNanos);
+    thing2.measureNanos(latencyNanos);
+  }
+
   /**
    * This is called from a main thread, on orderly termination.
    *
@@ -36,6 +36,16 @@ public interface MeasurementsExporter extends Closeable
    */
   public void write(String metric, String measurement, int i) throws IOException;
 
+  /**
+   * Write a measurement to the exported format.
+   *
+   * @param metric Metric name, for example "READ LATENCY".
+   * @param measurement Measurement name, for example "Total Operations".
+   * @param l Measurement to write.
+   * @throws IOException if writing failed
+   */
+  public void write(String metric, String measurement, long l) throws IOException;
+
   /**
    * Write a measurement to the exported format.
    * 
@@ -32,6 +32,7 @@ import com.yahoo.ycsb.generator.ScrambledZipfianGenerator;
 import com.yahoo.ycsb.generator.SequentialGenerator;
 import com.yahoo.ycsb.generator.SkewedLatestGenerator;
 import com.yahoo.ycsb.generator.UniformIntegerGenerator;
+import com.yahoo.ycsb.generator.UniformLongGenerator;
 import com.yahoo.ycsb.generator.ZipfianGenerator;
 import com.yahoo.ycsb.measurements.Measurements;
 
@@ -72,6 +73,9 @@ import java.util.Vector;
  * YCSB instance (default: 0)
  * <LI><b>insertcount</b>: for parallel loads and runs, defines the number of records for this
  * YCSB instance (default: recordcount)
+ * <LI><b>transactioninsertstart</b>: for parallel runs, defines the first record this YCSB
+ * instance inserts in the transaction phase; records from recordcount up to it are left to
+ * other instances and never read (default: recordcount)
  * <LI><b>zeropadding</b>: for generating a record sequence compatible with string sort order by
  * 0 padding the record number. Controls the number of 0s to use for padding. (default: 1)
  * For example for row 5, with zeropadding=1 you get 'user5' key and with zeropading=8 you get
@@ -79,6 +83,10 @@ import java.util.Vector;
  * digits in the record number.
  * <LI><b>insertorder</b>: should records be inserted in order by key ("ordered"), or in hashed
  * order ("hashed") (default: hashed)
+ * <LI><b>batchsize</b>: the number of records in a batched read, update or insert (default: 1,
+ * meaning no batches)
+ * <LI><b>batchproportion</b>: what proportion of reads, updates and inserts should be done as a
+ * batch of batchsize records (default: 0)
  * </ul>
  */
 public class CoreWorkload extends Workload {
@@ -299,6 +307,27 @@ public class CoreWorkload extends Workload {
    */
   public static final String INSERT_ORDER_PROPERTY_DEFAULT = "hashed";
 
+  /**
+   * The name of the property for the number of records in a batched read, update or insert.
+   */
+  public static final String BATCH_SIZE_PROPERTY = "batchsize";
+
+  /**
+   * The default batch size, which disables batches.
+   */
+  public static final String BATCH_SIZE_PROPERTY_DEFAULT = "1";
+
+  /**
+   * The name of the property for the proportion of reads, updates and inserts that are done
+   * as a batch of batchsize records, with the DB's batchRead, batchUpdate or batchInsert.
+   */
+  public static final String BATCH_PROPORTION_PROPERTY = "batchproportion";
+
+  /**
+   * The default proportion of batched operations.
+   */
+  public static final String BATCH_PROPORTION_PROPERTY_DEFAULT = "0";
+
   /**
    * Percentage data items that constitute the hot set.
    */
@@ -345,12 +374,17 @@ public class CoreWorkload extends Workload {
 
   boolean orderedinserts;
 
-  int recordcount;
+  long recordcount;
+
+  long transactioninsertstart;
   int zeropadding;
 
   int insertionRetryLimit;
   int insertionRetryInterval;
 
+  int batchsize;
+  double batchproportion;
+
   private Measurements _measurements = Measurements.getMeasurements();
 
   protected static NumberGenerator getFieldLengthGenerator(Properties p) throws WorkloadException {
@@ -398,7 +432,7 @@ public class CoreWorkload extends Workload {
     fieldlengthgenerator = CoreWorkload.getFieldLengthGenerator(p);
     
     recordcount =
-        Integer.parseInt(p.getProperty(Client.RECORD_COUNT_PROPERTY, Client.DEFAULT_RECORD_COUNT));
+        Long.parseLong(p.getProperty(Client.RECORD_COUNT_PROPERTY, Client.DEFAULT_RECORD_COUNT));
     if (recordcount == 0) {
       recordcount = Integer.MAX_VALUE;
     }
@@ -409,10 +443,10 @@ public class CoreWorkload extends Workload {
     String scanlengthdistrib =
         p.getProperty(SCAN_LENGTH_DISTRIBUTION_PROPERTY, SCAN_LENGTH_DISTRIBUTION_PROPERTY_DEFAULT);
 
-    int insertstart =
-        Integer.parseInt(p.getProperty(INSERT_START_PROPERTY, INSERT_START_PROPERTY_DEFAULT));
-    int insertcount =
-        Integer.parseInt(p.getProperty(INSERT_COUNT_PROPERTY, String.valueOf(recordcount - insertstart)));
+    long insertstart =
+        Long.parseLong(p.getProperty(INSERT_START_PROPERTY, INSERT_START_PROPERTY_DEFAULT));
+    long insertcount =
+        Long.parseLong(p.getProperty(INSERT_COUNT_PROPERTY, String.valueOf(recordcount - insertstart)));
     // Confirm valid values for insertstart and insertcount in relation to recordcount
     if (recordcount < (insertstart + insertcount)) {
       System.err.println("Invalid combination of insertstart, insertcount and recordcount.");
@@ -437,6 +471,14 @@ public class CoreWorkload extends Workload {
       System.err.println("Must have constant field size to check data integrity.");
       System.exit(-1);
     }
+    if (dataintegrity && PipelinedDB.getDepth(p) > 1) {
+      throw new WorkloadException("Data integrity checks need each read's result before the next operation; "
+          + "they cannot be combined with " + PipelinedDB.ASYNC_DEPTH_PROPERTY + " > 1.");
+    }
+
+    batchsize = Integer.parseInt(p.getProperty(BATCH_SIZE_PROPERTY, BATCH_SIZE_PROPERTY_DEFAULT));
+    batchproportion = Double.parseDouble(
+        p.getProperty(BATCH_PROPORTION_PROPERTY, BATCH_PROPORTION_PROPERTY_DEFAULT));
 
     if (p.getProperty(INSERT_ORDER_PROPERTY, INSERT_ORDER_PROPERTY_DEFAULT).compareTo("hashed") == 0) {
       orderedinserts = false;
@@ -455,9 +497,11 @@ public class CoreWorkload extends Workload {
     keysequence = new CounterGenerator(insertstart);
     operationchooser = createOperationGenerator(p);
 
-    transactioninsertkeysequence = new AcknowledgedCounterGenerator(recordcount);
+    transactioninsertstart = Long.parseLong(
+        p.getProperty(TRANSACTION_INSERT_START_PROPERTY, String.valueOf(recordcount)));
+    transactioninsertkeysequence = new AcknowledgedCounterGenerator(transactioninsertstart);
     if (requestdistrib.compareTo("uniform") == 0) {
-      keychooser = new UniformIntegerGenerator(insertstart, insertstart + insertcount - 1);
+      keychooser = new UniformLongGenerator(insertstart, insertstart + insertcount - 1);
     } else if (requestdistrib.compareTo("sequential") == 0) {
       keychooser = new SequentialGenerator(insertstart, insertstart + insertcount - 1);
     }else if (requestdistrib.compareTo("zipfian") == 0) {
@@ -472,8 +516,8 @@ public class CoreWorkload extends Workload {
       // the keyspace doesn't change from the perspective of the scrambled zipfian generator
       final double insertproportion = Double.parseDouble(
           p.getProperty(INSERT_PROPORTION_PROPERTY, INSERT_PROPORTION_PROPERTY_DEFAULT));
-      int opcount = Integer.parseInt(p.getProperty(Client.OPERATION_COUNT_PROPERTY));
-      int expectednewkeys = (int) ((opcount) * insertproportion * 2.0); // 2 is fudge factor
+      long opcount = Long.parseLong(p.getProperty(Client.OPERATION_COUNT_PROPERTY));
+      long expectednewkeys = (long) ((opcount) * insertproportion * 2.0); // 2 is fudge factor
 
       keychooser = new ScrambledZipfianGenerator(insertstart, insertstart + insertcount + expectednewkeys);
     } else if (requestdistrib.compareTo("latest") == 0) {
@@ -583,7 +627,7 @@ public class CoreWorkload extends Workload {
    */
   @Override
   public boolean doInsert(DB db, Object threadstate) {
-    int keynum = keysequence.nextValue().intValue();
+    long keynum = keysequence.nextValue().longValue();
     String dbkey = buildKeyName(keynum);
     HashMap<String, ByteIterator> values = buildValues(dbkey);
 
@@ -628,13 +672,25 @@ public class CoreWorkload extends Workload {
   public boolean doTransaction(DB db, Object threadstate) {
     switch (operationchooser.nextString()) {
     case "READ":
-      doTransactionRead(db);
+      if (nextIsBatch()) {
+        doTransactionBatchRead(db);
+      } else {
+        doTransactionRead(db);
+      }
       break;
     case "UPDATE":
-      doTransactionUpdate(db);
+      if (nextIsBatch()) {
+        doTransactionBatchUpdate(db);
+      } else {
+        doTransactionUpdate(db);
+      }
       break;
     case "INSERT":
-      doTransactionInsert(db);
+      if (nextIsBatch()) {
+        doTransactionBatchInsert(db);
+      } else {
+        doTransactionInsert(db);
+      }
       break;
     case "SCAN":
       doTransactionScan(db);
@@ -668,42 +724,39 @@ public class CoreWorkload extends Workload {
       verifyStatus = Status.ERROR;
     }
     long endTime = System.nanoTime();
-    _measurements.measure("VERIFY", (int) (endTime - startTime) / 1000);
+    _measurements.measureNanos("VERIFY", endTime - startTime);
     _measurements.reportStatus("VERIFY", verifyStatus);
   }
 
-  int nextKeynum() {
-    int keynum;
+  long nextKeynum() {
+    long keynum;
     if (keychooser instanceof ExponentialGenerator) {
       do {
-        keynum = transactioninsertkeysequence.lastValue() - keychooser.nextValue().intValue();
-      } while (keynum < 0);
+        keynum = transactioninsertkeysequence.lastValue() - keychooser.nextValue().longValue();
+      } while (keynum < 0 || insertedElsewhere(keynum));
     } else {
       do {
-        keynum = keychooser.nextValue().intValue();
-      } while (keynum > transactioninsertkeysequence.lastValue());
+        keynum = keychooser.nextValue().longValue();
+      } while (keynum > transactioninsertkeysequence.lastValue() || insertedElsewhere(keynum));
     }
     return keynum;
   }
 
+  /**
+   * @return true if keynum is among the records other instances insert in
+   *         the transaction phase, which this one cannot know to exist.
+   */
+  private boolean insertedElsewhere(long keynum) {
+    return keynum >= recordcount && keynum < transactioninsertstart;
+  }
+
   public void doTransactionRead(DB db) {
     // choose a random key
-    int keynum = nextKeynum();
+    long keynum = nextKeynum();
 
     String keyname = buildKeyName(keynum);
 
-    HashSet<String> fields = null;
-
-    if (!readallfields) {
-      // read a random field
-      String fieldname = fieldnames.get(fieldchooser.nextValue().intValue());
-
-      fields = new HashSet<String>();
-      fields.add(fieldname);
-    } else if (dataintegrity) {
-      // pass the full field list if dataintegrity is on for verification
-      fields = new HashSet<String>(fieldnames);
-    }
+    HashSet<String> fields = readFields();
 
     HashMap<String, ByteIterator> cells = new HashMap<String, ByteIterator>();
     db.read(table, keyname, fields, cells);
@@ -715,7 +768,7 @@ public class CoreWorkload extends Workload {
   
   public void doTransactionReadModifyWrite(DB db) {
     // choose a random key
-    int keynum = nextKeynum();
+    long keynum = nextKeynum();
 
     String keyname = buildKeyName(keynum);
 
@@ -756,13 +809,13 @@ public class CoreWorkload extends Workload {
       verifyRow(keyname, cells);
     }
 
-    _measurements.measure("READ-MODIFY-WRITE", (int) ((en - st) / 1000));
-    _measurements.measureIntended("READ-MODIFY-WRITE", (int) ((en - ist) / 1000));
+    _measurements.measureNanos("READ-MODIFY-WRITE", en - st);
+    _measurements.measureIntendedNanos("READ-MODIFY-WRITE", en - ist);
   }
 
   public void doTransactionScan(DB db) {
     // choose a random key
-    int keynum = nextKeynum();
+    long keynum = nextKeynum();
 
     String startkeyname = buildKeyName(keynum);
 
@@ -784,7 +837,7 @@ public class CoreWorkload extends Workload {
 
   public void doTransactionUpdate(DB db) {
     // choose a random key
-    int keynum = nextKeynum();
+    long keynum = nextKeynum();
 
     String keyname = buildKeyName(keynum);
 
@@ -803,7 +856,22 @@ public class CoreWorkload extends Workload {
 
   public void doTransactionInsert(DB db) {
     // choose the next key
-    int keynum = transactioninsertkeysequence.nextValue();
+    final long keynum = transactioninsertkeysequence.nextValue();
+
+    if (db instanceof PipelinedDB) {
+      // The insert is still in flight when this returns, so the key may only
+      // be read once it completes, and only if it was inserted.
+      String dbkey = buildKeyName(keynum);
+      db.insertAsync(table, dbkey, buildValues(dbkey), new StatusCallback() {
+        @Override
+        public void completed(Status status) {
+          if (status.isOk()) {
+            transactioninsertkeysequence.acknowledge(keynum);
+          }
+        }
+      });
+      return;
+    }
 
     try {
       String dbkey = buildKeyName(keynum);
@@ -815,6 +883,85 @@ public class CoreWorkload extends Workload {
     }
   }
 
+  /**
+   * @return true if the next read, update or insert should be batched.
+   */
+  boolean nextIsBatch() {
+    return batchsize > 1 && batchproportion > 0 && Utils.random().nextDouble() < batchproportion;
+  }
+
+  private HashSet<String> readFields() {
+    HashSet<String> fields = null;
+
+    if (!readallfields) {
+      // read a random field
+      String fieldname = fieldnames.get(fieldchooser.nextValue().intValue());
+
+      fields = new HashSet<String>();
+      fields.add(fieldname);
+    } else if (dataintegrity) {
+      // pass the full field list if dataintegrity is on for verification
+      fields = new HashSet<String>(fieldnames);
+    }
+    return fields;
+  }
+
+  public void doTransactionBatchRead(DB db) {
+    // choose batchsize random keys, leaving out repeats
+    List<String> keynames = new ArrayList<String>(batchsize);
+    HashSet<String> chosen = new HashSet<String>();
+    for (int i = 0; i < batchsize; i++) {
+      String keyname = buildKeyName(nextKeynum());
+      if (chosen.add(keyname)) {
+        keynames.add(keyname);
+      }
+    }
+
+    HashMap<String, HashMap<String, ByteIterator>> result =
+        new HashMap<String, HashMap<String, ByteIterator>>();
+    db.batchRead(table, keynames, readFields(), result);
+
+    if (dataintegrity) {
+      for (String keyname : keynames) {
+        HashMap<String, ByteIterator> cells = result.get(keyname);
+        verifyRow(keyname, cells != null ? cells : new HashMap<String, ByteIterator>());
+      }
+    }
+  }
+
+  public void doTransactionBatchUpdate(DB db) {
+    HashMap<String, HashMap<String, ByteIterator>> records =
+        new HashMap<String, HashMap<String, ByteIterator>>();
+    for (int i = 0; i < batchsize; i++) {
+      String keyname = buildKeyName(nextKeynum());
+      records.put(keyname, writeallfields ? buildValues(keyname) : buildSingleValue(keyname));
+    }
+
+    db.batchUpdate(table, records);
+  }
+
+  public void doTransactionBatchInsert(DB db) {
+    // choose the next batchsize keys
+    long[] keynums = new long[batchsize];
+    for (int i = 0; i < batchsize; i++) {
+      keynums[i] = transactioninsertkeysequence.nextValue();
+    }
+
+    try {
+      HashMap<String, HashMap<String, ByteIterator>> records =
+          new HashMap<String, HashMap<String, ByteIterator>>();
+      for (long keynum : keynums) {
+        String dbkey = buildKeyName(keynum);
+        records.put(dbkey, buildValues(dbkey));
+      }
+      db.batchInsert(table, records);
+    } finally {
+      for (long keynum : keynums) {
+        transactioninsertkeysequence.acknowledge(keynum);
+      }
+    }
+  }
+
   /**
    * Creates a weighted discrete values with database operations for a workload to perform.
    * Weights/proportions are read from the properties list and defaults are used
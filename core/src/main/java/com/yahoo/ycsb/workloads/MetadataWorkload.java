@@ -0,0 +1,402 @@
+/**
+ * Copyright (c) 2016 YCSB contributors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb.workloads;
+
+import com.yahoo.ycsb.ByteIterator;
+import com.yahoo.ycsb.Client;
+import com.yahoo.ycsb.DB;
+import com.yahoo.ycsb.NamespaceDB;
+import com.yahoo.ycsb.Status;
+import com.yahoo.ycsb.Utils;
+import com.yahoo.ycsb.Workload;
+import com.yahoo.ycsb.WorkloadException;
+import com.yahoo.ycsb.generator.CounterGenerator;
+import com.yahoo.ycsb.generator.DiscreteGenerator;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Properties;
+import java.util.Random;
+import java.util.Vector;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A file system metadata benchmark. The load phase creates recordcount empty
+ * files spread evenly over the leaf directories of a tree with
+ * <b>metadata.depth</b> levels and <b>metadata.fanout</b> directories per
+ * level, e.g. /metadata/d3/d0/d7/f42. The run phase resolves and lists paths
+ * of that tree, and creates, renames and recursively deletes directories in a
+ * scratch tree private to each client thread, so that mutations never break
+ * the paths other threads look up. The DB must implement {@link NamespaceDB};
+ * each kind of operation is measured under its own name (STAT, LIST, MKDIR,
+ * RENAME, RMR, and CREATE for the load phase).
+ *
+ * Properties to control the client:
+ * <UL>
+ * <LI><b>metadata.root</b>: the directory the namespace is created under (default: /metadata)
+ * <LI><b>metadata.depth</b>: the number of directory levels above each file (default: 3)
+ * <LI><b>metadata.fanout</b>: the number of subdirectories of each directory (default: 8)
+ * <LI><b>statproportion</b>: what proportion of operations should get the status of a
+ * random file, resolving its full path (default: 0.5)
+ * <LI><b>listproportion</b>: what proportion of operations should list a random directory
+ * at a random level of the tree (default: 0.2)
+ * <LI><b>mkdirproportion</b>: what proportion of operations should create a directory below
+ * a random directory of the thread's scratch tree (default: 0.1)
+ * <LI><b>renameproportion</b>: what proportion of operations should move a random scratch
+ * directory, with everything below it, to the top of the thread's scratch tree (default: 0.1)
+ * <LI><b>rmrproportion</b>: what proportion of operations should recursively delete a random
+ * scratch directory (default: 0.1)
+ * <LI><b>insertstart</b>: for parallel loads, defines the first file created by this YCSB
+ * instance (default: 0)
+ * </ul>
+ *
+ * Renames and recursive deletes are skipped, without being measured, while
+ * the thread's scratch tree is still empty.
+ */
+public class MetadataWorkload extends Workload {
+  /**
+   * The name of the property for the directory the namespace is created under.
+   */
+  public static final String ROOT_PROPERTY = "metadata.root";
+
+  /**
+   * The default directory the namespace is created under.
+   */
+  public static final String ROOT_PROPERTY_DEFAULT = "/metadata";
+
+  /**
+   * The name of the property for the number of directory levels above each file.
+   */
+  public static final String DEPTH_PROPERTY = "metadata.depth";
+
+  /**
+   * The default number of directory levels above each file.
+   */
+  public static final String DEPTH_PROPERTY_DEFAULT = "3";
+
+  /**
+   * The name of the property for the number of subdirectories of each directory.
+   */
+  public static final String FANOUT_PROPERTY = "metadata.fanout";
+
+  /**
+   * The default number of subdirectories of each directory.
+   */
+  public static final String FANOUT_PROPERTY_DEFAULT = "8";
+
+  /**
+   * The name of the property for the proportion of operations that are stats.
+   */
+  public static final String STAT_PROPORTION_PROPERTY = "statproportion";
+
+  /**
+   * The default proportion of operations that are stats.
+   */
+  public static final String STAT_PROPORTION_PROPERTY_DEFAULT = "0.5";
+
+  /**
+   * The name of the property for the proportion of operations that are listings.
+   */
+  public static final String LIST_PROPORTION_PROPERTY = "listproportion";
+
+  /**
+   * The default proportion of operations that are listings.
+   */
+  public static final String LIST_PROPORTION_PROPERTY_DEFAULT = "0.2";
+
+  /**
+   * The name of the property for the proportion of operations that are mkdirs.
+   */
+  public static final String MKDIR_PROPORTION_PROPERTY = "mkdirproportion";
+
+  /**
+   * The default proportion of operations that are mkdirs.
+   */
+  public static final String MKDIR_PROPORTION_PROPERTY_DEFAULT = "0.1";
+
+  /**
+   * The name of the property for the proportion of operations that are renames.
+   */
+  public static final String RENAME_PROPORTION_PROPERTY = "renameproportion";
+
+  /**
+   * The default proportion of operations that are renames.
+   */
+  public static final String RENAME_PROPORTION_PROPERTY_DEFAULT = "0.1";
+
+  /**
+   * The name of the property for the proportion of operations that are recursive deletes.
+   */
+  public static final String RMR_PROPORTION_PROPERTY = "rmrproportion";
+
+  /**
+   * The default proportion of operations that are recursive deletes.
+   */
+  public static final String RMR_PROPORTION_PROPERTY_DEFAULT = "0.1";
+
+  private String root;
+  private int depth;
+  private int fanout;
+  private long recordcount;
+  private CounterGenerator keysequence;
+  private DiscreteGenerator operationchooser;
+
+  /** Distinguishes the scratch trees of different client processes. */
+  private final String scratchprefix = Long.toHexString(new Random().nextLong() & Long.MAX_VALUE);
+  private final AtomicInteger scratchcount = new AtomicInteger(0);
+
+  /**
+   * The directories of one thread's scratch tree, and a counter for naming
+   * new ones.
+   */
+  private static final class ScratchTree {
+    private final String root;
+    private final List<String> dirs = new ArrayList<String>();
+    private int next = 0;
+
+    ScratchTree(String root) {
+      this.root = root;
+    }
+
+    String newName(String parent, String prefix) {
+      return parent + "/" + prefix + (next++);
+    }
+
+    /** Remove path and everything below it. */
+    void remove(String path) {
+      String prefix = path + "/";
+      for (int i = dirs.size() - 1; i >= 0; i--) {
+        String dir = dirs.get(i);
+        if (dir.equals(path) || dir.startsWith(prefix)) {
+          dirs.remove(i);
+        }
+      }
+    }
+
+    /** Move path and everything below it to dst. */
+    void move(String path, String dst) {
+      String prefix = path + "/";
+      for (int i = 0; i < dirs.size(); i++) {
+        String dir = dirs.get(i);
+        if (dir.equals(path)) {
+          dirs.set(i, dst);
+        } else if (dir.startsWith(prefix)) {
+          dirs.set(i, dst + dir.substring(path.length()));
+        }
+      }
+    }
+  }
+
+  @Override
+  public void init(Properties p) throws WorkloadException {
+    root = p.getProperty(ROOT_PROPERTY, ROOT_PROPERTY_DEFAULT);
+    if (root.endsWith("/")) {
+      root = root.substring(0, root.length() - 1);
+    }
+    depth = Integer.parseInt(p.getProperty(DEPTH_PROPERTY, DEPTH_PROPERTY_DEFAULT));
+    fanout = Integer.parseInt(p.getProperty(FANOUT_PROPERTY, FANOUT_PROPERTY_DEFAULT));
+    if (depth < 0 || fanout < 1) {
+      throw new WorkloadException(DEPTH_PROPERTY + " must not be negative and "
+          + FANOUT_PROPERTY + " must be positive");
+    }
+    if (Math.pow(fanout, depth) > Integer.MAX_VALUE) {
+      throw new WorkloadException("A tree with " + DEPTH_PROPERTY + "=" + depth + " and "
+          + FANOUT_PROPERTY + "=" + fanout + " has too many directories");
+    }
+    recordcount =
+        Long.parseLong(p.getProperty(Client.RECORD_COUNT_PROPERTY, Client.DEFAULT_RECORD_COUNT));
+    if (recordcount < 1) {
+      throw new WorkloadException(Client.RECORD_COUNT_PROPERTY + " must be positive");
+    }
+    long insertstart =
+        Long.parseLong(p.getProperty(INSERT_START_PROPERTY, INSERT_START_PROPERTY_DEFAULT));
+    keysequence = new CounterGenerator(insertstart);
+    operationchooser = createOperationGenerator(p);
+    checkNamespaceDB(p.getProperty(Client.DB_PROPERTY, "com.yahoo.ycsb.BasicDB"));
+  }
+
+  /**
+   * Fail before the run rather than on its first operation when the DB does
+   * not implement {@link NamespaceDB}. A DB class that cannot be loaded is
+   * left for the DB factory to report.
+   */
+  private static void checkNamespaceDB(String dbname) throws WorkloadException {
+    Class<?> dbclass;
+    try {
+      dbclass = Class.forName(dbname, false, MetadataWorkload.class.getClassLoader());
+    } catch (ClassNotFoundException e) {
+      return;
+    }
+    if (!NamespaceDB.class.isAssignableFrom(dbclass)) {
+      throw new WorkloadException(dbname + " does not support namespace operations");
+    }
+  }
+
+  /**
+   * Creates a weighted discrete values with namespace operations for a workload
+   * to perform.
+   */
+  public static DiscreteGenerator createOperationGenerator(final Properties p) {
+    final double statproportion = Double.parseDouble(
+        p.getProperty(STAT_PROPORTION_PROPERTY, STAT_PROPORTION_PROPERTY_DEFAULT));
+    final double listproportion = Double.parseDouble(
+        p.getProperty(LIST_PROPORTION_PROPERTY, LIST_PROPORTION_PROPERTY_DEFAULT));
+    final double mkdirproportion = Double.parseDouble(
+        p.getProperty(MKDIR_PROPORTION_PROPERTY, MKDIR_PROPORTION_PROPERTY_DEFAULT));
+    final double renameproportion = Double.parseDouble(
+        p.getProperty(RENAME_PROPORTION_PROPERTY, RENAME_PROPORTION_PROPERTY_DEFAULT));
+    final double rmrproportion = Double.parseDouble(
+        p.getProperty(RMR_PROPORTION_PROPERTY, RMR_PROPORTION_PROPERTY_DEFAULT));
+
+    final DiscreteGenerator chooser = new DiscreteGenerator();
+    if (statproportion > 0) {
+      chooser.addValue(statproportion, "STAT");
+    }
+    if (listproportion > 0) {
+      chooser.addValue(listproportion, "LIST");
+    }
+    if (mkdirproportion > 0) {
+      chooser.addValue(mkdirproportion, "MKDIR");
+    }
+    if (renameproportion > 0) {
+      chooser.addValue(renameproportion, "RENAME");
+    }
+    if (rmrproportion > 0) {
+      chooser.addValue(rmrproportion, "RMR");
+    }
+    return chooser;
+  }
+
+  @Override
+  public Object initThread(Properties p, int mythreadid, int threadcount) throws WorkloadException {
+    return new ScratchTree(root + "/scratch/" + scratchprefix + "-" + scratchcount.getAndIncrement());
+  }
+
+  /**
+   * @return the path of the index-th directory at the given level of the
+   *         tree, where level 0 is the root.
+   */
+  private String dirPath(int level, int index) {
+    StringBuilder path = new StringBuilder(root.length() + level * 4);
+    path.append(root);
+    int[] parts = new int[level];
+    for (int i = level - 1; i >= 0; i--) {
+      parts[i] = index % fanout;
+      index /= fanout;
+    }
+    for (int i = 0; i < level; i++) {
+      path.append("/d").append(parts[i]);
+    }
+    return path.toString();
+  }
+
+  /**
+   * @return the path of the file with the given number.
+   */
+  private String filePath(long filenum) {
+    long leaves = (long) Math.pow(fanout, depth);
+    return dirPath(depth, (int) (filenum % leaves)) + "/f" + filenum;
+  }
+
+  private static NamespaceDB namespace(DB db) {
+    if (db instanceof NamespaceDB) {
+      return (NamespaceDB) db;
+    }
+    throw new UnsupportedOperationException(
+        db.getClass().getName() + " does not support namespace operations");
+  }
+
+  @Override
+  public boolean doInsert(DB db, Object threadstate) {
+    long filenum = keysequence.nextValue().longValue();
+    Status status = namespace(db).createFile(filePath(filenum));
+    return null != status && status.isOk();
+  }
+
+  @Override
+  public boolean doTransaction(DB db, Object threadstate) {
+    NamespaceDB ns = namespace(db);
+    ScratchTree scratch = (ScratchTree) threadstate;
+    String operation = operationchooser.nextString();
+    if (operation == null) {
+      return false;
+    }
+
+    switch (operation) {
+    case "STAT":
+      doTransactionStat(ns);
+      break;
+    case "LIST":
+      doTransactionList(ns);
+      break;
+    case "RENAME":
+      doTransactionRename(ns, scratch);
+      break;
+    case "RMR":
+      doTransactionRmr(ns, scratch);
+      break;
+    default:
+      doTransactionMkdir(ns, scratch);
+    }
+    return true;
+  }
+
+  private void doTransactionStat(NamespaceDB ns) {
+    ns.stat(filePath((Utils.random().nextLong() & Long.MAX_VALUE) % recordcount), new HashMap<String, ByteIterator>());
+  }
+
+  private void doTransactionList(NamespaceDB ns) {
+    int level = Utils.random().nextInt(depth + 1);
+    int index = Utils.random().nextInt((int) Math.pow(fanout, level));
+    ns.list(dirPath(level, index), new Vector<String>());
+  }
+
+  private void doTransactionMkdir(NamespaceDB ns, ScratchTree scratch) {
+    // Pick the parent among the existing scratch directories so that the
+    // scratch tree grows in depth as well as in width.
+    int choice = Utils.random().nextInt(scratch.dirs.size() + 1);
+    String parent = choice == scratch.dirs.size() ? scratch.root : scratch.dirs.get(choice);
+    String dir = scratch.newName(parent, "m");
+    if (ns.mkdir(dir).isOk()) {
+      scratch.dirs.add(dir);
+    }
+  }
+
+  private void doTransactionRename(NamespaceDB ns, ScratchTree scratch) {
+    if (scratch.dirs.isEmpty()) {
+      // Nothing to rename yet; a mkdir here would be measured as MKDIR.
+      return;
+    }
+    String src = scratch.dirs.get(Utils.random().nextInt(scratch.dirs.size()));
+    String dst = scratch.newName(scratch.root, "r");
+    if (ns.rename(src, dst).isOk()) {
+      scratch.move(src, dst);
+    }
+  }
+
+  private void doTransactionRmr(NamespaceDB ns, ScratchTree scratch) {
+    if (scratch.dirs.isEmpty()) {
+      return;
+    }
+    String dir = scratch.dirs.get(Utils.random().nextInt(scratch.dirs.size()));
+    if (ns.deleteRecursive(dir).isOk()) {
+      scratch.remove(dir);
+    }
+  }
+}
@@ -0,0 +1,105 @@
+/**
+ * Copyright (c) 2016 YCSB contributors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+package com.yahoo.ycsb;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Properties;
+
+import org.HdrHistogram.Histogram;
+import org.testng.annotations.Test;
+
+import com.yahoo.ycsb.measurements.Measurements;
+import com.yahoo.ycsb.measurements.exporter.TextMeasurementsExporter;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+/**
+ * Test class for {@link ConcurrencyController}.
+ */
+public class TestConcurrencyController {
+
+  private static Histogram latencies(long valueUs) {
+    Histogram histogram = new Histogram(3);
+    histogram.recordValue(valueUs);
+    return histogram;
+  }
+
+  private static ConcurrencyController controller(int maxThreads, long opcount) {
+    Properties props = new Properties();
+    props.setProperty(ConcurrencyController.SLO_PROPERTY, "1000");
+    props.setProperty(ConcurrencyController.INITIAL_PROPERTY, "4");
+    return controller(props, maxThreads, opcount);
+  }
+
+  private static ConcurrencyController controller(Properties props, int maxThreads, long opcount) {
+    return new ConcurrencyController(props, maxThreads, opcount, new Workload() {
+      @Override
+      public boolean doInsert(DB db, Object threadstate) {
+        return true;
+      }
+
+      @Override
+      public boolean doTransaction(DB db, Object threadstate) {
+        return true;
+      }
+    });
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void testRejectsMeasurementsWithoutIntervalHistograms() {
+    Properties props = new Properties();
+    props.setProperty(Measurements.MEASUREMENT_TYPE_PROPERTY, "histogram");
+    controller(props, 8, 0);
+  }
+
+  @Test
+  public void testIncreasesAdditivelyAndDecreasesMultiplicatively() {
+    ConcurrencyController controller = controller(6, 0);
+    controller.update(null, 0, 1000);
+    controller.update(latencies(500), 100, 2000);
+    assertEquals(controller.getConcurrency(), 5);
+    controller.update(latencies(500), 200, 3000);
+    controller.update(latencies(500), 300, 4000);
+    assertEquals(controller.getConcurrency(), 6, "never more than the client threads");
+    controller.update(latencies(5000), 400, 5000);
+    assertEquals(controller.getConcurrency(), 3);
+  }
+
+  @Test
+  public void testFirstIntervalOnlyCountsItsOwnOperations() throws Exception {
+    ConcurrencyController controller = controller(6, 0);
+    // Operations done before the first report, e.g. during a warmup.
+    controller.update(null, 5000, 1000);
+    controller.update(latencies(500), 5100, 2000);
+
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    try (TextMeasurementsExporter exporter = new TextMeasurementsExporter(out)) {
+      controller.exportMeasurements(exporter);
+    }
+    assertTrue(out.toString("UTF-8").contains("[CONTROLLER-0], Throughput(ops/sec), 100.0"), out.toString("UTF-8"));
+  }
+
+  @Test
+  public void testHandsOutOpcountOperations() {
+    ConcurrencyController controller = controller(4, 2);
+    assertTrue(controller.acquire(0));
+    assertTrue(controller.acquire(3));
+    assertFalse(controller.acquire(1));
+  }
+}
@@ -0,0 +1,182 @@
+/**
+ * Copyright (c) 2016 YCSB contributors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+package com.yahoo.ycsb;
+
+import java.io.File;
+import java.net.ConnectException;
+import java.net.ServerSocket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.testng.annotations.Test;
+
+import com.yahoo.ycsb.measurements.Measurements;
+import com.yahoo.ycsb.workloads.CoreWorkload;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+/**
+ * Test class for {@link Coordinator}.
+ */
+public class TestCoordinator {
+
+  @Test
+  public void testLoadPartitionsCoverTheRecords() {
+    Properties props = new Properties();
+    props.setProperty(Client.DO_TRANSACTIONS_PROPERTY, "false");
+    props.setProperty(Client.RECORD_COUNT_PROPERTY, "1010");
+    props.setProperty(Workload.INSERT_START_PROPERTY, "10");
+
+    long next = 10;
+    for (int i = 0; i < 3; i++) {
+      Properties share = Coordinator.partition(props, i, 3);
+      assertEquals(Long.parseLong(share.getProperty(Workload.INSERT_START_PROPERTY)), next);
+      next += Long.parseLong(share.getProperty(Client.INSERT_COUNT_PROPERTY));
+    }
+    assertEquals(next, 1010);
+  }
+
+  @Test
+  public void testTransactionPartitionsSplitOperationsAndTarget() {
+    Properties props = new Properties();
+    props.setProperty(Client.OPERATION_COUNT_PROPERTY, "100");
+    props.setProperty(Client.TARGET_PROPERTY, "1000");
+
+    long operations = 0;
+    long target = 0;
+    for (int i = 0; i < 3; i++) {
+      Properties share = Coordinator.partition(props, i, 3);
+      operations += Long.parseLong(share.getProperty(Client.OPERATION_COUNT_PROPERTY));
+      target += Long.parseLong(share.getProperty(Client.TARGET_PROPERTY));
+    }
+    assertEquals(operations, 100);
+    assertEquals(target, 1000);
+  }
+
+  @Test
+  public void testTransactionPartitionsInsertDisjointRecords() {
+    Properties props = new Properties();
+    props.setProperty(Client.RECORD_COUNT_PROPERTY, "1000");
+    props.setProperty(Client.OPERATION_COUNT_PROPERTY, "100");
+    props.setProperty(CoreWorkload.BATCH_SIZE_PROPERTY, "4");
+
+    long next = 1000;
+    for (int i = 0; i < 3; i++) {
+      Properties share = Coordinator.partition(props, i, 3);
+      long start = Long.parseLong(share.getProperty(Workload.TRANSACTION_INSERT_START_PROPERTY));
+      assertTrue(start >= next, "worker " + i + " inserts from " + start + ", overlapping " + next);
+      // At most one batch per operation.
+      next = start + Long.parseLong(share.getProperty(Client.OPERATION_COUNT_PROPERTY)) * 4;
+    }
+    assertEquals(Long.parseLong(Coordinator.partition(props, 0, 3)
+        .getProperty(Workload.TRANSACTION_INSERT_START_PROPERTY)), 1000);
+  }
+
+  @Test(timeOut = 60000)
+  public void testLoopbackRunMergesWorkerMeasurements() throws Exception {
+    int port;
+    try (ServerSocket probe = new ServerSocket(0)) {
+      port = probe.getLocalPort();
+    }
+    File export = File.createTempFile("coordinator", ".txt");
+    export.deleteOnExit();
+
+    final Properties props = new Properties();
+    props.setProperty(Coordinator.WORKERS_PROPERTY, "2");
+    props.setProperty(Coordinator.SPAWN_PROPERTY, "false");
+    props.setProperty(Coordinator.PORT_PROPERTY, String.valueOf(port));
+    props.setProperty(Client.EXPORT_FILE_PROPERTY, export.getPath());
+
+    ExecutorService executor = Executors.newFixedThreadPool(3);
+    try {
+      Future<?> coordinator = executor.submit(new Callable<Void>() {
+        @Override
+        public Void call() throws Exception {
+          new Coordinator(props, new String[0]).run(false);
+          return null;
+        }
+      });
+      Future<?> fast = executor.submit(worker("127.0.0.1:" + port, 1000));
+      Future<?> slow = executor.submit(worker("127.0.0.1:" + port, 2000));
+      fast.get(30, TimeUnit.SECONDS);
+      slow.get(30, TimeUnit.SECONDS);
+      coordinator.get(30, TimeUnit.SECONDS);
+    } finally {
+      executor.shutdownNow();
+    }
+
+    Map<String, Double> results = new HashMap<String, Double>();
+    for (String line : Files.readAllLines(export.toPath(), StandardCharsets.UTF_8)) {
+      String[] fields = line.split(", ");
+      results.put(fields[0] + " " + fields[1], Double.parseDouble(fields[2]));
+    }
+    assertEquals(results.get("[LOOPBACK] Operations"), 200.0);
+    assertEquals(results.get("[LOOPBACK] Return=OK"), 200.0);
+    assertEquals(results.get("[WORKER-0] Operations"), 100.0);
+    assertEquals(results.get("[WORKER-1] Operations"), 100.0);
+    assertEquals(results.get("[LOOPBACK] AverageLatency(us)"), 1500, 5);
+    // Half of the operations took 2000us, so the 95th percentile of all of
+    // them is that, rather than the 1500us average of the workers' ones.
+    double p95 = results.get("[LOOPBACK] 95thPercentileLatency(us)");
+    assertTrue(p95 >= 2000 && p95 < 2010, "95th percentile " + p95);
+  }
+
+  /**
+   * A worker joining the coordinator at address that does 100 operations of
+   * latencyUs each, recorded in measurements of its own.
+   */
+  private static Callable<Void> worker(final String address, final int latencyUs) {
+    return new Callable<Void>() {
+      @Override
+      public Void call() throws Exception {
+        Properties props = new Properties();
+        props.setProperty(Coordinator.ADDRESS_PROPERTY, address);
+        Measurements measurements = new Measurements(new Properties());
+        CoordinatedWorker worker = connect(props, measurements);
+        worker.awaitStart();
+        for (int i = 0; i < 100; i++) {
+          measurements.measure("LOOPBACK", latencyUs);
+          measurements.reportStatus("LOOPBACK", Status.OK);
+        }
+        worker.finish(100, 1000);
+        return null;
+      }
+    };
+  }
+
+  /**
+   * Connect to the coordinator, which may not be listening yet.
+   */
+  private static CoordinatedWorker connect(Properties props, Measurements measurements) throws Exception {
+    while (true) {
+      try {
+        return new CoordinatedWorker(props, measurements);
+      } catch (ConnectException e) {
+        Thread.sleep(10);
+      }
+    }
+  }
+}
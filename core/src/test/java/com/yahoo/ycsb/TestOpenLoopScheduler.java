@@ -0,0 +1,116 @@
+/**
+ * Copyright (c) 2016 YCSB contributors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+package com.yahoo.ycsb;
+
+import java.util.HashMap;
+import java.util.Properties;
+import java.util.Set;
+import java.util.Vector;
+import java.util.concurrent.CountDownLatch;
+
+import org.testng.annotations.Test;
+
+import com.yahoo.ycsb.measurements.Measurements;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+
+/**
+ * Test class for {@link OpenLoopScheduler}.
+ */
+public class TestOpenLoopScheduler {
+
+  /**
+   * A DB whose init fails if asked to.
+   */
+  private static class InitDB extends DB {
+    private final boolean fail;
+
+    InitDB(boolean fail) {
+      this.fail = fail;
+    }
+
+    @Override
+    public void init() throws DBException {
+      if (fail) {
+        throw new DBException("init failed on purpose");
+      }
+    }
+
+    @Override
+    public Status read(String table, String key, Set<String> fields, HashMap<String, ByteIterator> result) {
+      return Status.OK;
+    }
+
+    @Override
+    public Status scan(String table, String startkey, int recordcount, Set<String> fields,
+                       Vector<HashMap<String, ByteIterator>> result) {
+      return Status.OK;
+    }
+
+    @Override
+    public Status update(String table, String key, HashMap<String, ByteIterator> values) {
+      return Status.OK;
+    }
+
+    @Override
+    public Status insert(String table, String key, HashMap<String, ByteIterator> values) {
+      return Status.OK;
+    }
+
+    @Override
+    public Status delete(String table, String key) {
+      return Status.OK;
+    }
+  }
+
+  @Test(timeOut = 30000)
+  public void testArrivalsStartWhenAThreadFailsToInitialize() throws Exception {
+    Properties props = new Properties();
+    props.setProperty(OpenLoopScheduler.ARRIVAL_PROPERTY, "constant");
+    Measurements.setProperties(props);
+    Workload workload = new Workload() {
+      @Override
+      public boolean doInsert(DB db, Object threadstate) {
+        return true;
+      }
+
+      @Override
+      public boolean doTransaction(DB db, Object threadstate) {
+        return true;
+      }
+    };
+    OpenLoopScheduler scheduler = new OpenLoopScheduler(props, 1000, 20, 2, workload);
+    CountDownLatch complete = new CountDownLatch(2);
+
+    ClientThread failing = new ClientThread(new InitDB(true), true, workload, props, 0, 0, complete);
+    ClientThread working = new ClientThread(new InitDB(false), true, workload, props, 0, 0, complete);
+    failing.setOpenLoopScheduler(scheduler);
+    working.setOpenLoopScheduler(scheduler);
+    Thread failingThread = new Thread(failing);
+    Thread workingThread = new Thread(working);
+    failingThread.start();
+    workingThread.start();
+    scheduler.start();
+
+    failingThread.join();
+    workingThread.join(20000);
+    assertFalse(workingThread.isAlive(), "the thread that initialized must get the arrivals");
+    assertEquals(working.getOpsDone(), 20);
+    assertEquals(failing.getOpsDone(), 0);
+  }
+}
@@ -0,0 +1,132 @@
+/**
+ * Copyright (c) 2016 YCSB contributors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+package com.yahoo.ycsb;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.Vector;
+
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+/**
+ * Test class for {@link PipelinedDB}.
+ */
+public class TestPipelinedDB {
+
+  /**
+   * A DB that holds on to every asynchronous update until told to complete it.
+   */
+  private static class DeferredDB extends DB {
+    final List<StatusCallback> pending = new ArrayList<StatusCallback>();
+
+    synchronized void completeAll() {
+      for (StatusCallback callback : pending) {
+        callback.completed(Status.OK);
+      }
+      pending.clear();
+    }
+
+    synchronized int pending() {
+      return pending.size();
+    }
+
+    @Override
+    public synchronized void updateAsync(String table, String key, HashMap<String, ByteIterator> values,
+                                         StatusCallback callback) {
+      pending.add(callback);
+    }
+
+    @Override
+    public Status read(String table, String key, Set<String> fields, HashMap<String, ByteIterator> result) {
+      return Status.OK;
+    }
+
+    @Override
+    public Status scan(String table, String startkey, int recordcount, Set<String> fields,
+                       Vector<HashMap<String, ByteIterator>> result) {
+      return Status.OK;
+    }
+
+    @Override
+    public Status update(String table, String key, HashMap<String, ByteIterator> values) {
+      return Status.OK;
+    }
+
+    @Override
+    public Status insert(String table, String key, HashMap<String, ByteIterator> values) {
+      return Status.OK;
+    }
+
+    @Override
+    public Status delete(String table, String key) {
+      return Status.OK;
+    }
+  }
+
+  @Test
+  public void testBoundsOperationsInFlight() throws Exception {
+    final DeferredDB deferred = new DeferredDB();
+    final PipelinedDB db = new PipelinedDB(deferred, 4);
+    for (int i = 0; i < 4; i++) {
+      assertEquals(db.update("t", "k" + i, new HashMap<String, ByteIterator>()), Status.BATCHED_OK);
+    }
+    assertEquals(deferred.pending(), 4);
+
+    Thread fifth = new Thread() {
+      @Override
+      public void run() {
+        db.update("t", "k4", new HashMap<String, ByteIterator>());
+      }
+    };
+    fifth.start();
+    fifth.join(200);
+    assertTrue(fifth.isAlive(), "a fifth operation must wait for a free slot");
+    assertEquals(deferred.pending(), 4);
+
+    deferred.completeAll();
+    fifth.join();
+    assertEquals(deferred.pending(), 1);
+  }
+
+  @Test
+  public void testCleanupDrains() throws Exception {
+    final DeferredDB deferred = new DeferredDB();
+    final PipelinedDB db = new PipelinedDB(deferred, 2);
+    db.update("t", "k", new HashMap<String, ByteIterator>());
+
+    Thread cleanup = new Thread() {
+      @Override
+      public void run() {
+        try {
+          db.cleanup();
+        } catch (DBException e) {
+          throw new RuntimeException(e);
+        }
+      }
+    };
+    cleanup.start();
+    cleanup.join(200);
+    assertTrue(cleanup.isAlive(), "cleanup must wait for the outstanding operation");
+    deferred.completeAll();
+    cleanup.join();
+  }
+}
@@ -0,0 +1,99 @@
+/**
+ * Copyright (c) 2016 YCSB contributors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+package com.yahoo.ycsb.measurements;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the recording throughput of {@link OneMeasurementHdrHistogram}
+ * with one shared recorder and with a recorder per thread, with all threads
+ * recording into the same measurement. main runs both at 1, 8, 64 and 256
+ * threads; a single thread count can be run with -t:
+ *
+ * <pre>
+ * mvn -pl core test-compile dependency:build-classpath \
+ *   -Dmdep.outputFile=target/cp.txt -Dmdep.includeScope=test
+ * java -cp core/target/test-classes:core/target/classes:$(cat core/target/cp.txt) \
+ *   org.openjdk.jmh.Main OneMeasurementHdrHistogramBenchmark -t 64
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class OneMeasurementHdrHistogramBenchmark {
+  private static final int[] THREADS = {1, 8, 64, 256};
+
+  @Param({"shared", "perthread"})
+  private String recorder;
+
+  private OneMeasurementHdrHistogram histogram;
+
+  /** Latencies between 0 and 64 ms, different for every thread. */
+  @State(Scope.Thread)
+  public static class Latencies {
+    private int next;
+
+    @Setup
+    public void setup() {
+      next = (int) Thread.currentThread().getId();
+    }
+
+    int next() {
+      next = next * 1103515245 + 12345;
+      return (next >>> 8) & 0xffff;
+    }
+  }
+
+  @Setup
+  public void setup() {
+    Properties props = new Properties();
+    props.setProperty(OneMeasurementHdrHistogram.RECORDER_PROPERTY, recorder);
+    histogram = new OneMeasurementHdrHistogram("READ", props);
+  }
+
+  @Benchmark
+  public void measure(Latencies latencies) {
+    histogram.measure(latencies.next());
+  }
+
+  public static void main(String[] args) throws Exception {
+    for (int threads : THREADS) {
+      new Runner(new OptionsBuilder()
+          .include(OneMeasurementHdrHistogramBenchmark.class.getSimpleName())
+          .threads(threads)
+          .build()).run();
+    }
+  }
+}
@@ -0,0 +1,138 @@
+/**
+ * Copyright (c) 2016 YCSB contributors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+package com.yahoo.ycsb.measurements;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the recording throughput of {@link OneMeasurementHistogram} with
+ * the synchronized histogram it replaced, with all threads recording into
+ * the same measurement. main runs both at 1, 8, 64 and 256 threads; a
+ * single thread count can be run with -t:
+ *
+ * <pre>
+ * mvn -pl core test-compile dependency:build-classpath \
+ *   -Dmdep.outputFile=target/cp.txt -Dmdep.includeScope=test
+ * java -cp core/target/test-classes:core/target/classes:$(cat core/target/cp.txt) \
+ *   org.openjdk.jmh.Main OneMeasurementHistogramBenchmark -t 64
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class OneMeasurementHistogramBenchmark {
+  private static final int[] THREADS = {1, 8, 64, 256};
+
+  private OneMeasurementHistogram striped;
+  private SynchronizedHistogram synchronizedHistogram;
+
+  /** Latencies between 0 and 64 ms, different for every thread. */
+  @State(Scope.Thread)
+  public static class Latencies {
+    private int next;
+
+    @Setup
+    public void setup() {
+      next = (int) Thread.currentThread().getId();
+    }
+
+    int next() {
+      next = next * 1103515245 + 12345;
+      return (next >>> 8) & 0xffff;
+    }
+  }
+
+  @Setup
+  public void setup() {
+    striped = new OneMeasurementHistogram("READ", new Properties());
+    synchronizedHistogram = new SynchronizedHistogram(1000);
+  }
+
+  @Benchmark
+  public void striped(Latencies latencies) {
+    striped.measure(latencies.next());
+  }
+
+  @Benchmark
+  public void synchronizedHistogram(Latencies latencies) {
+    synchronizedHistogram.measure(latencies.next());
+  }
+
+  /** What OneMeasurementHistogram.measure did before it was striped. */
+  static final class SynchronizedHistogram {
+    private final int buckets;
+    private final int[] histogram;
+    private int histogramoverflow;
+    private int operations;
+    private long totallatency;
+    private double totalsquaredlatency;
+    private int windowoperations;
+    private long windowtotallatency;
+    private int min = -1;
+    private int max = -1;
+
+    SynchronizedHistogram(int buckets) {
+      this.buckets = buckets;
+      this.histogram = new int[buckets];
+    }
+
+    synchronized void measure(int latency) {
+      if (latency / 1000 >= buckets) {
+        histogramoverflow++;
+      } else {
+        histogram[latency / 1000]++;
+      }
+      operations++;
+      totallatency += latency;
+      totalsquaredlatency += ((double) latency) * ((double) latency);
+      windowoperations++;
+      windowtotallatency += latency;
+      if (min < 0 || latency < min) {
+        min = latency;
+      }
+      if (max < 0 || latency > max) {
+        max = latency;
+      }
+    }
+  }
+
+  public static void main(String[] args) throws Exception {
+    for (int threads : THREADS) {
+      new Runner(new OptionsBuilder()
+          .include(OneMeasurementHistogramBenchmark.class.getSimpleName())
+          .threads(threads)
+          .build()).run();
+    }
+  }
+}
@@ -0,0 +1,87 @@
+/**
+ * Copyright (c) 2016 YCSB contributors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+package com.yahoo.ycsb.measurements;
+
+import java.util.Map;
+import java.util.Properties;
+
+import org.HdrHistogram.Histogram;
+import org.testng.annotations.Test;
+
+import com.yahoo.ycsb.Status;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+
+/**
+ * Test class for {@link MeasurementHandle}.
+ */
+public class TestMeasurementHandle {
+
+  private static Measurements newMeasurements(String interval) {
+    Properties props = new Properties();
+    props.put(Measurements.MEASUREMENT_TYPE_PROPERTY, "hdrhistogram");
+    props.put(Measurements.MEASUREMENT_INTERVAL, interval);
+    return new Measurements(props);
+  }
+
+  @Test
+  public void testRecordsLikeNamedCalls() {
+    Measurements mm = newMeasurements("both");
+    MeasurementHandle read = mm.handle("READ");
+    assertSame(mm.handle("READ"), read);
+    assertTrue(mm._opToMesurementMap.isEmpty(), "a handle alone must not create measurements");
+
+    read.measure(100);
+    read.measureIntended(150);
+    read.reportStatus(Status.OK);
+    mm.measure("READ", 200);
+    mm.reportStatus("READ", Status.OK);
+
+    assertEquals(mm.getOpMeasurement("READ").getStatusCounts().get(Status.OK).get(), 2);
+    Map<String, Histogram> histograms = mm.getIntervalHistograms();
+    assertEquals(histograms.get("READ").getTotalCount(), 2);
+    assertEquals(histograms.get("Intended-READ").getTotalCount(), 1);
+  }
+
+  @Test
+  public void testWarmup() {
+    Measurements mm = newMeasurements("op");
+    MeasurementHandle update = mm.handle("UPDATE");
+    mm.setWarmingUp(true);
+    update.measure(100);
+    update.reportStatus(Status.OK);
+    mm.setWarmingUp(false);
+    update.measure(100);
+
+    Map<String, Histogram> histograms = mm.getIntervalHistograms();
+    assertEquals(histograms.get(Measurements.WARMUP_PREFIX + "UPDATE").getTotalCount(), 1);
+    assertEquals(histograms.get("UPDATE").getTotalCount(), 1);
+    assertFalse(mm.getStatusCounts().containsKey("UPDATE"));
+  }
+
+  @Test
+  public void testStatusCountsBeyondIntRange() {
+    Measurements mm = newMeasurements("op");
+    mm.mergeStatusCount("READ", Status.OK, Integer.MAX_VALUE);
+    mm.mergeStatusCount("READ", Status.OK, Integer.MAX_VALUE);
+    mm.reportStatus("READ", Status.OK);
+    assertEquals(mm.getStatusCounts().get("READ").get(Status.OK).longValue(), 2L * Integer.MAX_VALUE + 1);
+  }
+}
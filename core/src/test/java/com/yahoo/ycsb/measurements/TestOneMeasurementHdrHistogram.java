@@ -0,0 +1,143 @@
+/**
+ * Copyright (c) 2016 YCSB contributors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+package com.yahoo.ycsb.measurements;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+
+import org.testng.annotations.Test;
+
+import com.yahoo.ycsb.measurements.exporter.MeasurementsExporter;
+
+import static org.testng.Assert.assertEquals;
+
+/**
+ * Test class for {@link OneMeasurementHdrHistogram}.
+ */
+public class TestOneMeasurementHdrHistogram {
+
+  /** Collects what is exported. */
+  private static class MapExporter implements MeasurementsExporter {
+    final Map<String, Double> values = new HashMap<String, Double>();
+
+    @Override
+    public void write(String metric, String measurement, int i) {
+      values.put(measurement, (double) i);
+    }
+
+    @Override
+    public void write(String metric, String measurement, long l) {
+      values.put(measurement, (double) l);
+    }
+
+    @Override
+    public void write(String metric, String measurement, double d) {
+      values.put(measurement, d);
+    }
+
+    @Override
+    public void close() {
+    }
+  }
+
+  private static Map<String, Double> export(Properties props, long... nanos) throws IOException {
+    OneMeasurementHdrHistogram m = new OneMeasurementHdrHistogram("READ", props);
+    for (long latency : nanos) {
+      m.measureNanos(latency);
+    }
+    MapExporter exporter = new MapExporter();
+    m.exportMeasurements(exporter);
+    return exporter.values;
+  }
+
+  @Test
+  public void testMicrosTruncate() throws IOException {
+    Map<String, Double> values = export(new Properties(), 1500, 1999);
+    assertEquals(values.get("MinLatency(us)"), 1.0);
+    assertEquals(values.get("MaxLatency(us)"), 1.0);
+  }
+
+  @Test
+  public void testNanos() throws IOException {
+    Properties props = new Properties();
+    props.setProperty(OneMeasurementHdrHistogram.UNIT_PROPERTY, "ns");
+    Map<String, Double> values = export(props, 1500, 1999);
+    assertEquals(values.get("MinLatency(ns)"), 1500.0);
+    assertEquals(values.get("MaxLatency(ns)"), 1999.0);
+
+    props.setProperty(OneMeasurementHdrHistogram.REPORT_UNIT_PROPERTY, "us");
+    values = export(props, 1500, 1999);
+    assertEquals(values.get("MinLatency(us)"), 1.5);
+    assertEquals(values.get("MaxLatency(us)"), 1.999);
+
+    OneMeasurementHdrHistogram m = new OneMeasurementHdrHistogram("READ", props);
+    m.measure(7);
+    MapExporter exporter = new MapExporter();
+    m.exportMeasurements(exporter);
+    assertEquals(exporter.values.get("MaxLatency(us)"), 7.0, 0.01);
+  }
+
+  @Test
+  public void testPerThreadRecordersMatchShared() throws Exception {
+    Properties props = new Properties();
+    final OneMeasurementHdrHistogram shared = new OneMeasurementHdrHistogram("READ", props);
+    props.setProperty(OneMeasurementHdrHistogram.RECORDER_PROPERTY, "perthread");
+    final OneMeasurementHdrHistogram perThread = new OneMeasurementHdrHistogram("READ", props);
+
+    Thread[] threads = new Thread[8];
+    for (int t = 0; t < threads.length; t++) {
+      final int thread = t;
+      threads[t] = new Thread() {
+        @Override
+        public void run() {
+          for (int i = 0; i < 10000; i++) {
+            int latency = (thread * 7919 + i * 104729) % 100000;
+            shared.measure(latency);
+            perThread.measure(latency);
+          }
+        }
+      };
+      threads[t].start();
+    }
+    for (int t = 0; t < threads.length; t++) {
+      threads[t].join();
+      if (t == 3) {
+        // Take an interval partway through, as the status thread would.
+        shared.getIntervalHistogram();
+        perThread.getIntervalHistogram();
+      }
+    }
+
+    MapExporter expected = new MapExporter();
+    shared.exportMeasurements(expected);
+    MapExporter actual = new MapExporter();
+    perThread.exportMeasurements(actual);
+    assertEquals(expected.values.get("Operations"), 80000.0);
+    assertEquals(actual.values, expected.values);
+  }
+
+  @Test
+  public void testHighestCapsLatencies() throws IOException {
+    Properties props = new Properties();
+    props.setProperty(OneMeasurementHdrHistogram.HIGHEST_PROPERTY, "1000");
+    Map<String, Double> values = export(props, 3600L * 1000 * 1000 * 1000);
+    assertEquals(values.get("Operations"), 1.0);
+    assertEquals(values.get("MaxLatency(us)"), 1000.0, 1.0);
+  }
+}
@@ -0,0 +1,122 @@
+/**
+ * Copyright (c) 2016 YCSB contributors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+package com.yahoo.ycsb.measurements;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Properties;
+
+import org.testng.annotations.Test;
+
+import com.yahoo.ycsb.measurements.exporter.MeasurementsExporter;
+
+import static org.testng.Assert.assertEquals;
+
+/**
+ * Test class for {@link OneMeasurementHistogram}.
+ */
+public class TestOneMeasurementHistogram {
+  private static final int THREADS = 8;
+  private static final int PER_THREAD = 10000;
+
+  /** Collects what is exported, in order. */
+  private static class MapExporter implements MeasurementsExporter {
+    final Map<String, Number> values = new LinkedHashMap<String, Number>();
+
+    @Override
+    public void write(String metric, String measurement, int i) {
+      values.put(metric + "/" + measurement, i);
+    }
+
+    @Override
+    public void write(String metric, String measurement, long l) {
+      values.put(metric + "/" + measurement, l);
+    }
+
+    @Override
+    public void write(String metric, String measurement, double d) {
+      values.put(metric + "/" + measurement, d);
+    }
+
+    @Override
+    public void close() {
+    }
+  }
+
+  private static int latency(int thread, int i) {
+    return (thread * 7919 + i * 104729) % 1200000;
+  }
+
+  private static Map<String, Number> export(OneMeasurement m) throws IOException {
+    MapExporter exporter = new MapExporter();
+    m.exportMeasurements(exporter);
+    return exporter.values;
+  }
+
+  @Test
+  public void testStripesAddUp() throws Exception {
+    Properties props = new Properties();
+    props.setProperty(OneMeasurementHistogram.STRIPES, "1");
+    OneMeasurementHistogram single = new OneMeasurementHistogram("READ", props);
+    for (int t = 0; t < THREADS; t++) {
+      for (int i = 0; i < PER_THREAD; i++) {
+        single.measure(latency(t, i));
+      }
+    }
+
+    props.setProperty(OneMeasurementHistogram.STRIPES, "4");
+    final OneMeasurementHistogram striped = new OneMeasurementHistogram("READ", props);
+    Thread[] threads = new Thread[THREADS];
+    for (int t = 0; t < THREADS; t++) {
+      final int thread = t;
+      threads[t] = new Thread() {
+        @Override
+        public void run() {
+          for (int i = 0; i < PER_THREAD; i++) {
+            striped.measure(latency(thread, i));
+          }
+        }
+      };
+      threads[t].start();
+    }
+    for (Thread thread : threads) {
+      thread.join();
+    }
+
+    Map<String, Number> expected = export(single);
+    Map<String, Number> actual = export(striped);
+    assertEquals(expected.get("READ/Operations"), THREADS * PER_THREAD);
+    // The squares are summed in a different order, as they already were
+    // when several threads recorded into one histogram.
+    String variance = "READ/LatencyVariance(us)";
+    assertEquals(actual.remove(variance).doubleValue(), expected.get(variance).doubleValue(),
+        expected.get(variance).doubleValue() * 1e-9);
+    expected.remove(variance);
+    assertEquals(actual, expected);
+    assertEquals(striped.getSummary(), single.getSummary());
+    assertEquals(striped.getSummary(), "");
+  }
+
+  @Test
+  public void testEmpty() throws IOException {
+    Map<String, Number> values = export(new OneMeasurementHistogram("READ", new Properties()));
+    assertEquals(values.get("READ/Operations"), 0);
+    assertEquals(values.get("READ/MinLatency(us)"), -1);
+    assertEquals(values.get("READ/MaxLatency(us)"), -1);
+  }
+}
@@ -0,0 +1,113 @@
+/**
+ * Copyright (c) 2016 YCSB contributors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+package com.yahoo.ycsb.measurements;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+import org.testng.annotations.Test;
+
+import com.yahoo.ycsb.measurements.exporter.MeasurementsExporter;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+/**
+ * Test class for {@link OneMeasurementRaw}.
+ */
+public class TestOneMeasurementRaw {
+
+  /** Collects what is exported. */
+  private static class MapExporter implements MeasurementsExporter {
+    final Map<String, Number> values = new HashMap<String, Number>();
+
+    @Override
+    public void write(String metric, String measurement, int i) {
+      values.put(measurement, i);
+    }
+
+    @Override
+    public void write(String metric, String measurement, long l) {
+      values.put(measurement, l);
+    }
+
+    @Override
+    public void write(String metric, String measurement, double d) {
+      values.put(measurement, d);
+    }
+
+    @Override
+    public void close() {
+    }
+  }
+
+  @Test
+  public void testWritesEveryDataPoint() throws Exception {
+    File output = File.createTempFile("raw", ".csv");
+    output.deleteOnExit();
+    Properties props = new Properties();
+    props.setProperty(OneMeasurementRaw.OUTPUT_FILE_PATH, output.getPath());
+    props.setProperty(OneMeasurementRaw.BUFFER_SIZE, "7");
+
+    OneMeasurementRaw raw = new OneMeasurementRaw("READ", props);
+    for (int i = 1; i <= 1000; i++) {
+      raw.measure(i);
+    }
+    assertTrue(raw.getSummary().startsWith("READ count: 1000,"));
+    MapExporter exporter = new MapExporter();
+    raw.exportMeasurements(exporter);
+
+    List<String> lines = Files.readAllLines(output.toPath(), StandardCharsets.UTF_8);
+    assertEquals(lines.size(), 1001);
+    assertEquals(lines.get(0), "READ latency raw data: op, timestamp(ms), latency(us)");
+    long sum = 0;
+    for (String line : lines.subList(1, lines.size())) {
+      String[] fields = line.split(",");
+      assertEquals(fields[0], "READ");
+      assertTrue(Long.parseLong(fields[1]) > 0);
+      sum += Integer.parseInt(fields[2]);
+    }
+    assertEquals(sum, 1000 * 1001 / 2);
+
+    assertEquals(exporter.values.get("Total Operations"), 1000L);
+    assertEquals(exporter.values.get("Average"), 500.5);
+    assertEquals(exporter.values.get("Min"), 1);
+    assertEquals(exporter.values.get("Max"), 1000);
+    assertEquals(exporter.values.get("p50"), 500);
+    assertEquals(exporter.values.get("p99"), 990);
+  }
+
+  @Test
+  public void testPutDecimal() {
+    ByteBuffer buffer = ByteBuffer.allocate(64);
+    OneMeasurementRaw.putDecimal(buffer, 0);
+    buffer.put((byte) ' ');
+    OneMeasurementRaw.putDecimal(buffer, -42);
+    buffer.put((byte) ' ');
+    OneMeasurementRaw.putDecimal(buffer, Long.MAX_VALUE);
+    buffer.put((byte) ' ');
+    OneMeasurementRaw.putDecimal(buffer, Long.MIN_VALUE);
+    assertEquals(new String(buffer.array(), 0, buffer.position(), StandardCharsets.US_ASCII),
+        "0 -42 9223372036854775807 -9223372036854775808");
+  }
+}
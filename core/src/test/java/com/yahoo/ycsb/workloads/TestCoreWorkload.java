@@ -16,13 +16,26 @@
  */
 package com.yahoo.ycsb.workloads;
 
+import static org.testng.Assert.assertEquals;
 import static org.testng.Assert.assertTrue;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Properties;
+import java.util.Set;
+import java.util.Vector;
 
 import org.testng.annotations.Test;
 
+import com.yahoo.ycsb.ByteIterator;
+import com.yahoo.ycsb.Client;
+import com.yahoo.ycsb.DB;
+import com.yahoo.ycsb.PipelinedDB;
+import com.yahoo.ycsb.Status;
+import com.yahoo.ycsb.StatusCallback;
 import com.yahoo.ycsb.generator.DiscreteGenerator;
+import com.yahoo.ycsb.measurements.Measurements;
 
 public class TestCoreWorkload {
 
@@ -67,4 +80,65 @@ public class TestCoreWorkload {
   public void createOperationChooserNullProperties() {
     CoreWorkload.createOperationGenerator(null);
   }
-}
\ No newline at end of file
+
+  /**
+   * A DB that holds on to every asynchronous insert until told to complete it.
+   */
+  private static class DeferredInsertDB extends DB {
+    final List<StatusCallback> pending = new ArrayList<StatusCallback>();
+
+    @Override
+    public void insertAsync(String table, String key, HashMap<String, ByteIterator> values,
+                            StatusCallback callback) {
+      pending.add(callback);
+    }
+
+    @Override
+    public Status read(String table, String key, Set<String> fields, HashMap<String, ByteIterator> result) {
+      return Status.OK;
+    }
+
+    @Override
+    public Status scan(String table, String startkey, int recordcount, Set<String> fields,
+                       Vector<HashMap<String, ByteIterator>> result) {
+      return Status.OK;
+    }
+
+    @Override
+    public Status update(String table, String key, HashMap<String, ByteIterator> values) {
+      return Status.OK;
+    }
+
+    @Override
+    public Status insert(String table, String key, HashMap<String, ByteIterator> values) {
+      return Status.OK;
+    }
+
+    @Override
+    public Status delete(String table, String key) {
+      return Status.OK;
+    }
+  }
+
+  @Test
+  public void pipelinedInsertsAreAcknowledgedOnceInserted() throws Exception {
+    Properties p = new Properties();
+    p.setProperty(Client.RECORD_COUNT_PROPERTY, "10");
+    Measurements.setProperties(p);
+    CoreWorkload workload = new CoreWorkload();
+    workload.init(p);
+    DeferredInsertDB deferred = new DeferredInsertDB();
+    PipelinedDB db = new PipelinedDB(deferred, 4);
+
+    workload.doTransactionInsert(db);
+    workload.doTransactionInsert(db);
+    assertEquals(workload.transactioninsertkeysequence.lastValue().longValue(), 9,
+        "keys still being inserted must not be read");
+
+    deferred.pending.get(0).completed(Status.OK);
+    assertEquals(workload.transactioninsertkeysequence.lastValue().longValue(), 10);
+    deferred.pending.get(1).completed(Status.ERROR);
+    assertEquals(workload.transactioninsertkeysequence.lastValue().longValue(), 10,
+        "a key that failed to insert must not be read");
+  }
+}
@@ -0,0 +1,174 @@
+/**
+ * Copyright (c) 2016 YCSB contributors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+package com.yahoo.ycsb.workloads;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+import java.util.Vector;
+
+import org.testng.annotations.Test;
+
+import com.yahoo.ycsb.BasicDB;
+import com.yahoo.ycsb.ByteIterator;
+import com.yahoo.ycsb.Client;
+import com.yahoo.ycsb.DB;
+import com.yahoo.ycsb.NamespaceDB;
+import com.yahoo.ycsb.Status;
+import com.yahoo.ycsb.WorkloadException;
+
+public class TestMetadataWorkload {
+
+  /**
+   * Records the paths it is asked to create.
+   */
+  private static class RecordingDB extends DB implements NamespaceDB {
+    private final List<String> created = new ArrayList<String>();
+
+    @Override
+    public Status read(String table, String key, Set<String> fields, HashMap<String, ByteIterator> result) {
+      return Status.NOT_IMPLEMENTED;
+    }
+
+    @Override
+    public Status scan(String table, String startkey, int recordcount, Set<String> fields,
+                       Vector<HashMap<String, ByteIterator>> result) {
+      return Status.NOT_IMPLEMENTED;
+    }
+
+    @Override
+    public Status update(String table, String key, HashMap<String, ByteIterator> values) {
+      return Status.NOT_IMPLEMENTED;
+    }
+
+    @Override
+    public Status insert(String table, String key, HashMap<String, ByteIterator> values) {
+      return Status.NOT_IMPLEMENTED;
+    }
+
+    @Override
+    public Status delete(String table, String key) {
+      return Status.NOT_IMPLEMENTED;
+    }
+
+    @Override
+    public Status mkdir(String path) {
+      created.add(path);
+      return Status.OK;
+    }
+
+    @Override
+    public Status createFile(String path) {
+      created.add(path);
+      return Status.OK;
+    }
+
+    @Override
+    public Status rename(String src, String dst) {
+      return Status.OK;
+    }
+
+    @Override
+    public Status list(String path, Vector<String> result) {
+      return Status.OK;
+    }
+
+    @Override
+    public Status deleteRecursive(String path) {
+      return Status.OK;
+    }
+
+    @Override
+    public Status stat(String path, HashMap<String, ByteIterator> result) {
+      return Status.OK;
+    }
+  }
+
+  private static Properties properties() {
+    final Properties p = new Properties();
+    p.setProperty(Client.DB_PROPERTY, RecordingDB.class.getName());
+    return p;
+  }
+
+  @Test
+  public void loadSpreadsFilesOverLeafDirectories() throws Exception {
+    final Properties p = properties();
+    p.setProperty(Client.RECORD_COUNT_PROPERTY, "6");
+    p.setProperty(MetadataWorkload.DEPTH_PROPERTY, "2");
+    p.setProperty(MetadataWorkload.FANOUT_PROPERTY, "2");
+    final MetadataWorkload workload = new MetadataWorkload();
+    workload.init(p);
+    final RecordingDB db = new RecordingDB();
+    final Object state = workload.initThread(p, 0, 1);
+    for (int i = 0; i < 6; i++) {
+      assertTrue(workload.doInsert(db, state));
+    }
+    assertEquals(db.created.get(0), "/metadata/d0/d0/f0");
+    assertEquals(db.created.get(3), "/metadata/d1/d1/f3");
+    assertEquals(db.created.get(5), "/metadata/d0/d1/f5");
+  }
+
+  @Test
+  public void mkdirOnlyWorkloadCreatesScratchDirectories() throws Exception {
+    final Properties p = properties();
+    p.setProperty(Client.RECORD_COUNT_PROPERTY, "10");
+    p.setProperty(MetadataWorkload.STAT_PROPORTION_PROPERTY, "0");
+    p.setProperty(MetadataWorkload.LIST_PROPORTION_PROPERTY, "0");
+    p.setProperty(MetadataWorkload.RENAME_PROPORTION_PROPERTY, "0");
+    p.setProperty(MetadataWorkload.RMR_PROPORTION_PROPERTY, "0");
+    final MetadataWorkload workload = new MetadataWorkload();
+    workload.init(p);
+    final RecordingDB db = new RecordingDB();
+    final Object state = workload.initThread(p, 0, 1);
+    for (int i = 0; i < 20; i++) {
+      assertTrue(workload.doTransaction(db, state));
+    }
+    assertEquals(db.created.size(), 20);
+    for (String dir : db.created) {
+      assertTrue(dir.startsWith("/metadata/scratch/"), dir);
+    }
+  }
+
+  @Test
+  public void renameAndRmrSkipAnEmptyScratchTree() throws Exception {
+    final Properties p = properties();
+    p.setProperty(Client.RECORD_COUNT_PROPERTY, "10");
+    p.setProperty(MetadataWorkload.STAT_PROPORTION_PROPERTY, "0");
+    p.setProperty(MetadataWorkload.LIST_PROPORTION_PROPERTY, "0");
+    p.setProperty(MetadataWorkload.MKDIR_PROPORTION_PROPERTY, "0");
+    final MetadataWorkload workload = new MetadataWorkload();
+    workload.init(p);
+    final RecordingDB db = new RecordingDB();
+    final Object state = workload.initThread(p, 0, 1);
+    for (int i = 0; i < 20; i++) {
+      assertTrue(workload.doTransaction(db, state));
+    }
+    assertTrue(db.created.isEmpty(), "no MKDIR may stand in for a RENAME or RMR");
+  }
+
+  @Test(expectedExceptions = WorkloadException.class)
+  public void initRejectsDBWithoutNamespaceOperations() throws Exception {
+    final Properties p = properties();
+    p.setProperty(Client.DB_PROPERTY, BasicDB.class.getName());
+    new MetadataWorkload().init(p);
+  }
+}
@@ -21,6 +21,7 @@ import com.yahoo.ycsb.ByteIterator;
 import com.yahoo.ycsb.DB;
 import com.yahoo.ycsb.DBException;
 import com.yahoo.ycsb.Status;
+import com.yahoo.ycsb.StatusCallback;
 import com.yahoo.ycsb.StringByteIterator;
 
 import java.io.IOException;
@@ -41,7 +42,9 @@ import net.spy.memcached.FailureMode;
 // We also use `net.spy.memcached.MemcachedClient`; it is not imported
 // explicitly and referred to with its full path to avoid conflicts with the
 // class of the same name in this file.
+import net.spy.memcached.internal.GetCompletionListener;
 import net.spy.memcached.internal.GetFuture;
+import net.spy.memcached.internal.OperationCompletionListener;
 import net.spy.memcached.internal.OperationFuture;
 
 import org.codehaus.jackson.JsonFactory;
@@ -174,7 +177,37 @@ public class MemcachedClient extends DB {
       HashMap<String, ByteIterator> result) {
     key = createQualifiedKey(table, key);
     try {
-      GetFuture<Object> future = memcachedClient().asyncGet(key);
+      return readResult(key, memcachedClient().asyncGet(key), fields, result);
+    } catch (Exception e) {
+      logger.error("Error encountered for key: " + key, e);
+      return Status.ERROR;
+    }
+  }
+
+  @Override
+  public void readAsync(
+      String table, String key, final Set<String> fields,
+      final HashMap<String, ByteIterator> result, final StatusCallback callback) {
+    final String qualifiedKey = createQualifiedKey(table, key);
+    try {
+      memcachedClient().asyncGet(qualifiedKey).addListener(
+          new GetCompletionListener() {
+            @Override
+            public void onComplete(GetFuture<?> future) {
+              callback.completed(
+                  readResult(qualifiedKey, future, fields, result));
+            }
+          });
+    } catch (Exception e) {
+      logger.error("Error encountered for key: " + qualifiedKey, e);
+      callback.completed(Status.ERROR);
+    }
+  }
+
+  private Status readResult(
+      String key, GetFuture<?> future, Set<String> fields,
+      HashMap<String, ByteIterator> result) {
+    try {
       Object document = future.get();
       if (document != null) {
         fromJson((String) document, fields, result);
@@ -233,7 +266,165 @@ public class MemcachedClient extends DB {
     }
   }
 
-  protected Status getReturnCode(OperationFuture<Boolean> future) {
+  @Override
+  public void updateAsync(
+      String table, String key, HashMap<String, ByteIterator> values,
+      StatusCallback callback) {
+    key = createQualifiedKey(table, key);
+    try {
+      completeWith(memcachedClient().replace(
+          key, objectExpirationTime, toJson(values)), callback);
+    } catch (Exception e) {
+      logger.error("Error updating value with key: " + key, e);
+      callback.completed(Status.ERROR);
+    }
+  }
+
+  @Override
+  public void insertAsync(
+      String table, String key, HashMap<String, ByteIterator> values,
+      StatusCallback callback) {
+    key = createQualifiedKey(table, key);
+    try {
+      completeWith(memcachedClient().add(
+          key, objectExpirationTime, toJson(values)), callback);
+    } catch (Exception e) {
+      logger.error("Error inserting value", e);
+      callback.completed(Status.ERROR);
+    }
+  }
+
+  @Override
+  public void deleteAsync(String table, String key, StatusCallback callback) {
+    key = createQualifiedKey(table, key);
+    try {
+      completeWith(memcachedClient().delete(key), callback);
+    } catch (Exception e) {
+      logger.error("Error deleting value", e);
+      callback.completed(Status.ERROR);
+    }
+  }
+
+  /**
+   * Read all records with a single multi-get.
+   */
+  @Override
+  public Status batchRead(
+      String table, List<String> keys, Set<String> fields,
+      HashMap<String, HashMap<String, ByteIterator>> result) {
+    Map<String, String> qualifiedKeys = new HashMap<String, String>();
+    for (String key : keys) {
+      qualifiedKeys.put(createQualifiedKey(table, key), key);
+    }
+    try {
+      Map<String, Object> documents =
+          memcachedClient().getBulk(qualifiedKeys.keySet());
+      for (Map.Entry<String, Object> document : documents.entrySet()) {
+        HashMap<String, ByteIterator> cells = new HashMap<String, ByteIterator>();
+        fromJson((String) document.getValue(), fields, cells);
+        result.put(qualifiedKeys.get(document.getKey()), cells);
+      }
+      // The multi-get leaves out the keys it did not find.
+      return documents.size() < qualifiedKeys.size()
+          ? Status.NOT_FOUND : Status.OK;
+    } catch (Exception e) {
+      logger.error("Error encountered for keys: " + qualifiedKeys.keySet(), e);
+      return Status.ERROR;
+    }
+  }
+
+  /**
+   * Send all replaces before waiting for any of them, so that they share
+   * round trips to the server.
+   */
+  @Override
+  public Status batchUpdate(
+      String table, HashMap<String, HashMap<String, ByteIterator>> records) {
+    List<OperationFuture<Boolean>> futures =
+        new ArrayList<OperationFuture<Boolean>>(records.size());
+    try {
+      for (Map.Entry<String, HashMap<String, ByteIterator>> record
+          : records.entrySet()) {
+        futures.add(memcachedClient().replace(
+            createQualifiedKey(table, record.getKey()), objectExpirationTime,
+            toJson(record.getValue())));
+      }
+      return getReturnCode(futures);
+    } catch (Exception e) {
+      logger.error("Error updating values", e);
+      return Status.ERROR;
+    }
+  }
+
+  /**
+   * Send all adds before waiting for any of them.
+   */
+  @Override
+  public Status batchInsert(
+      String table, HashMap<String, HashMap<String, ByteIterator>> records) {
+    List<OperationFuture<Boolean>> futures =
+        new ArrayList<OperationFuture<Boolean>>(records.size());
+    try {
+      for (Map.Entry<String, HashMap<String, ByteIterator>> record
+          : records.entrySet()) {
+        futures.add(memcachedClient().add(
+            createQualifiedKey(table, record.getKey()), objectExpirationTime,
+            toJson(record.getValue())));
+      }
+      return getReturnCode(futures);
+    } catch (Exception e) {
+      logger.error("Error inserting values", e);
+      return Status.ERROR;
+    }
+  }
+
+  /**
+   * Send all deletes before waiting for any of them.
+   */
+  @Override
+  public Status batchDelete(String table, List<String> keys) {
+    List<OperationFuture<Boolean>> futures =
+        new ArrayList<OperationFuture<Boolean>>(keys.size());
+    try {
+      for (String key : keys) {
+        futures.add(memcachedClient().delete(createQualifiedKey(table, key)));
+      }
+      return getReturnCode(futures);
+    } catch (Exception e) {
+      logger.error("Error deleting values", e);
+      return Status.ERROR;
+    }
+  }
+
+  /**
+   * @return OK if all futures succeed, otherwise the return code of the
+   *         first one that failed.
+   */
+  private Status getReturnCode(List<OperationFuture<Boolean>> futures) {
+    Status result = Status.OK;
+    for (OperationFuture<Boolean> future : futures) {
+      Status status = getReturnCode(future);
+      if (result.isOk()) {
+        result = status;
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Call back with the return code of future once it completes.
+   */
+  private void completeWith(
+      OperationFuture<Boolean> future, final StatusCallback callback) {
+    future.addListener(new OperationCompletionListener() {
+        @Override
+        public void onComplete(OperationFuture<?> completed) {
+          callback.completed(getReturnCode(completed));
+        }
+      });
+  }
+
+  protected Status getReturnCode(OperationFuture<?> future) {
     if (!checkOperationStatus) {
       return Status.OK;
     }